@@ -0,0 +1,86 @@
+package tm000.junit5.extensions;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers shared by the connections of a {@link WebServerExtension} server.
+ * The capacities are rounded up to a power of two and the released buffers are kept per capacity,
+ * so a connection reuses the buffers of the closed connections instead of allocating new ones.
+ */
+class BufferPool {
+    private static final int MIN_SHIFT = 10;
+    private static final int MAX_SHIFT = 24;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final ArrayDeque<ByteBuffer>[] free = new ArrayDeque[MAX_SHIFT - MIN_SHIFT + 1];
+    private final int maxPooledPerSize;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    BufferPool(int maxPooledPerSize) {
+        this.maxPooledPerSize = maxPooledPerSize;
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ArrayDeque<>(maxPooledPerSize);
+        }
+    }
+
+    /**
+     * @return a cleared buffer with at least the capacity
+     */
+    ByteBuffer acquire(int capacity) {
+        int index = index(capacity);
+        if (index < free.length) {
+            ByteBuffer buffer;
+            synchronized (free[index]) {
+                buffer = free[index].pollFirst();
+            }
+            if (buffer != null) {
+                reused.incrementAndGet();
+                return buffer;
+            }
+        }
+        created.incrementAndGet();
+        return ByteBuffer.allocateDirect(index < free.length ? 1 << (index + MIN_SHIFT) : capacity);
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || Integer.bitCount(buffer.capacity()) != 1) {
+            return;
+        }
+        int index = index(buffer.capacity());
+        if (index < free.length) {
+            buffer.clear();
+            synchronized (free[index]) {
+                if (free[index].size() < maxPooledPerSize) {
+                    free[index].addFirst(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * copy the data of the buffer in write mode into a buffer of the double capacity and release the old one
+     */
+    ByteBuffer enlarge(ByteBuffer buffer) {
+        ByteBuffer larger = acquire(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        release(buffer);
+        return larger;
+    }
+
+    long getCreated() {
+        return created.get();
+    }
+
+    long getReused() {
+        return reused.get();
+    }
+
+    private static int index(int capacity) {
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1));
+        return shift - MIN_SHIFT;
+    }
+}
@@ -0,0 +1,193 @@
+package tm000.junit5.extensions;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Simple JDBC connection pool shared by all test classes of a run.
+ * The pool is kept by {@link WorkerDatabases} in the root {@link ExtensionContext.Store} and its physical
+ * connections are closed when the store is closed at the end of the run.
+ * <pre>
+ * jdbc.pool.minSize=1              connections opened when the pool is created
+ * jdbc.pool.maxSize=10             upper bound of connections in use at the same time
+ * jdbc.pool.maxWait=30000          milliseconds to wait for a free connection
+ * jdbc.pool.validationTimeout=1    seconds for Connection#isValid on borrow (0 disables validation)
+ * </pre>
+ */
+class ConnectionPool implements ExtensionContext.Store.CloseableResource {
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long maxWait;
+    private final int validationTimeout;
+
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    ConnectionPool(Properties prop, String url) throws SQLException, ClassNotFoundException {
+        if (prop.getProperty("jdbc.driver.class") != null && !prop.getProperty("jdbc.driver.class").trim().isEmpty()) {
+            Class.forName(prop.getProperty("jdbc.driver.class"));
+        }
+        this.url = url;
+        this.username = prop.getProperty("jdbc.username");
+        this.password = prop.getProperty("jdbc.password");
+        int minSize = Integer.parseInt(prop.getProperty("jdbc.pool.minSize", "1"));
+        this.maxSize = Math.max(1, Integer.parseInt(prop.getProperty("jdbc.pool.maxSize", "10")));
+        this.maxWait = Long.parseLong(prop.getProperty("jdbc.pool.maxWait", "30000"));
+        this.validationTimeout = Integer.parseInt(prop.getProperty("jdbc.pool.validationTimeout", "1"));
+        this.permits = new Semaphore(maxSize, true);
+        for (int i = 0; i < Math.min(minSize, maxSize); i++) {
+            idle.add(open());
+        }
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    /**
+     * Borrow a connection from the pool.
+     * Closing the returned connection gives it back to the pool instead of closing the physical connection.
+     */
+    Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("no connection available within " + maxWait + "ms (jdbc.pool.maxSize=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+        try {
+            Connection con;
+            while ((con = idle.pollFirst()) != null) {
+                if (validate(con)) {
+                    return wrap(con);
+                }
+                closeQuietly(con);
+            }
+            return wrap(open());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection con = DriverManager.getConnection(url, username, password);
+        con.setAutoCommit(false);
+        return con;
+    }
+
+    private boolean validate(Connection con) {
+        try {
+            return validationTimeout <= 0 ? !con.isClosed() : con.isValid(validationTimeout);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(Connection con) {
+        try {
+            if (closed || con.isClosed()) {
+                closeQuietly(con);
+                return;
+            }
+            // discard the work which has not been committed by the borrower
+            if (!con.getAutoCommit()) {
+                con.rollback();
+            }
+            con.setAutoCommit(false);
+            idle.addFirst(con);
+        } catch (SQLException e) {
+            closeQuietly(con);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Connection con) {
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new PooledConnectionHandler(con));
+    }
+
+    private static void closeQuietly(Connection con) {
+        try {
+            con.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection con;
+        while ((con = idle.pollFirst()) != null) {
+            closeQuietly(con);
+        }
+    }
+
+    /**
+     * Delegates to the physical connection and returns it to the pool on close.
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final Connection con;
+        private boolean released;
+
+        PooledConnectionHandler(Connection con) {
+            this.con = con;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "close":
+                if (!released) {
+                    released = true;
+                    release(con);
+                }
+                return null;
+            case "isClosed":
+                return released || con.isClosed();
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(con)) {
+                    return con;
+                }
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Pooled[" + con + "]";
+            default:
+                if (released) {
+                    throw new SQLException("connection has been returned to the pool");
+                }
+            }
+            try {
+                return method.invoke(con, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
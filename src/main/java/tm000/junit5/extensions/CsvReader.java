@@ -0,0 +1,87 @@
+package tm000.junit5.extensions;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV/TSV one by one.
+ * Fields may be quoted with double quotes, and a quoted field may contain the separator,
+ * line breaks and escaped double quotes (""). An empty field which is not quoted is read as null.
+ */
+class CsvReader implements Closeable {
+    private final BufferedReader reader;
+    private final char separator;
+
+    CsvReader(Reader reader, char separator) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.separator = separator;
+    }
+
+    /**
+     * read the next record
+     * @return the fields of the record, or null at the end of the input
+     */
+    String[] nextRecord() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.isEmpty()) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (inQuotes) {
+                    // a quoted field continues on the next line
+                    String next = reader.readLine();
+                    if (next == null) {
+                        break;
+                    }
+                    field.append('\n');
+                    line = next;
+                    i = 0;
+                    continue;
+                }
+                break;
+            }
+            char ch = line.charAt(i++);
+            if (inQuotes) {
+                if (ch == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                inQuotes = true;
+                quoted = true;
+            } else if (ch == separator) {
+                fields.add(quoted || field.length() > 0 ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+            } else {
+                field.append(ch);
+            }
+        }
+        fields.add(quoted || field.length() > 0 ? field.toString() : null);
+        return fields.toArray(new String[0]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -1,128 +1,601 @@
 package tm000.junit5.extensions;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.DatabaseMetaData;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.AfterAllCallback;
 import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
 import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.junit.platform.commons.support.HierarchyTraversalMode;
+import org.junit.platform.commons.support.ReflectionSupport;
 
-public class DatabaseExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+public class DatabaseExtension implements BeforeAllCallback, BeforeTestExecutionCallback, AfterTestExecutionCallback, AfterAllCallback, ParameterResolver {
     private static final String JDBC_SETTINGS = "testdb.properties";
 
-    private boolean existsSql;
+    private static final Namespace NAMESPACE = Namespace.create(DatabaseExtension.class);
 
-    private Connection getConnection() throws SQLException, IOException, ClassNotFoundException {
-        Properties prop = new Properties();
-        // read JDBC connection settings from testdb.properties
-        prop.load(getClass().getClassLoader().getResourceAsStream(JDBC_SETTINGS));
-        if (prop.getProperty("jdbc.driver.class") != null && !prop.getProperty("jdbc.driver.class").trim().isEmpty()) {
-            Class.forName(prop.getProperty("jdbc.driver.class"));
+    private static final String EXISTS_SQL = "existsSql";
+
+    /**
+     * get the settings read from testdb.properties, which are overridden by the configuration parameters of the same names
+     */
+    private Properties getSettings(ExtensionContext context) {
+        return context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(JDBC_SETTINGS, key -> {
+            Properties prop = new Properties();
+            // read JDBC connection settings from testdb.properties
+            try (var in = getClass().getClassLoader().getResourceAsStream(JDBC_SETTINGS)) {
+                if (in == null) {
+                    throw new ExtensionConfigurationException(JDBC_SETTINGS + " not found");
+                }
+                prop.load(in);
+                for (String name : prop.stringPropertyNames()) {
+                    context.getConfigurationParameter(name).ifPresent(value -> prop.setProperty(name, value));
+                }
+                return prop;
+            } catch (IOException e) {
+                throw new ExtensionConfigurationException("failed to read " + JDBC_SETTINGS, e);
+            }
+        }, Properties.class);
+    }
+
+    /**
+     * @return jdbc.batch.size, the number of the statements executed by a batch
+     */
+    private int getBatchSize(ExtensionContext context) {
+        String value = getSettings(context).getProperty("jdbc.batch.size", "1000");
+        try {
+            int batchSize = Integer.parseInt(value.trim());
+            if (batchSize >= 1) {
+                return batchSize;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
         }
-        Connection con = DriverManager.getConnection(prop.getProperty("jdbc.url"), prop.getProperty("jdbc.username"), prop.getProperty("jdbc.password"));
-        con.setAutoCommit(false);
-        return con;
+        throw new ExtensionConfigurationException("jdbc.batch.size must be a positive integer: " + value);
+    }
+
+    /**
+     * get the connection pool of the database leased to the top-level test class
+     */
+    private ConnectionPool getConnectionPool(ExtensionContext context) {
+        ExtensionContext worker = context;
+        while (worker.getParent().isPresent() && worker.getParent().get().getParent().isPresent()) {
+            worker = worker.getParent().get();
+        }
+        WorkerDatabases databases = context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(WorkerDatabases.class,
+                key -> new WorkerDatabases(getSettings(context)), WorkerDatabases.class);
+        return worker.getStore(NAMESPACE).getOrComputeIfAbsent(WorkerDatabases.Lease.class, key -> {
+            try {
+                return databases.lease();
+            } catch (SQLException | ClassNotFoundException e) {
+                throw new ExtensionConfigurationException("failed to create connection pool", e);
+            }
+        }, WorkerDatabases.Lease.class).pool;
+    }
+
+    private static ExtensionContext getClassContext(ExtensionContext context) {
+        ExtensionContext ctx = context;
+        while (ctx.getTestMethod().isPresent() && ctx.getParent().isPresent()) {
+            ctx = ctx.getParent().get();
+        }
+        return ctx;
+    }
+
+    /**
+     * get the annotations of the test class resolved once per class
+     */
+    private TestClassMetadata getMetadata(ExtensionContext context) {
+        return getClassContext(context).getStore(NAMESPACE).getOrComputeIfAbsent(TestClassMetadata.class,
+                key -> new TestClassMetadata(context.getRequiredTestClass()), TestClassMetadata.class);
+    }
+
+    private IsolationMode getIsolationMode(ExtensionContext context) {
+        TestClassMetadata metadata = getMetadata(context);
+        return context.getTestMethod().map(m -> metadata.getTestMethod(m).isolationMode).orElse(metadata.isolationMode);
+    }
+
+    /**
+     * get the connection dedicated to the current test
+     */
+    private Connection getTestConnection(ExtensionContext context) {
+        return context.getStore(NAMESPACE).getOrComputeIfAbsent(TestConnection.class, key -> {
+            try {
+                return new TestConnection(getConnectionPool(context).getConnection());
+            } catch (SQLException e) {
+                throw new ExtensionConfigurationException("failed to get connection", e);
+            }
+        }, TestConnection.class).con;
+    }
+
+    private SnapshotCache getSnapshotCache(ExtensionContext context) {
+        return context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(SnapshotCache.class, key -> new SnapshotCache(), SnapshotCache.class);
+    }
+
+    /**
+     * @return null if no {@link DatabaseResetStrategy} supports the database
+     */
+    private DatabaseResetStrategy getResetStrategy(ExtensionContext context, Connection con) throws SQLException {
+        return context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(ResetStrategies.class, key -> new ResetStrategies(), ResetStrategies.class).find(con);
+    }
+
+    /**
+     * @ExecuteSql annotations followed by @LoadData annotations of the method
+     */
+    private static List<Annotation> getInputAnnotations(Method m) {
+        List<Annotation> annotations = new ArrayList<>(AnnotationSupport.findRepeatableAnnotations(m, ExecuteSql.class));
+        annotations.addAll(AnnotationSupport.findRepeatableAnnotations(m, LoadData.class));
+        return annotations;
+    }
+
+    @Override
+    public void beforeAll(ExtensionContext context) throws Exception {
+        TestClassMetadata metadata = getMetadata(context);
+        if (!metadata.beforeAll.isEmpty()) {
+            // the class fixture is prepared once and committed
+            context.getStore(NAMESPACE).put(ClassFixture.class, new ClassFixture(SnapshotCache.key(metadata.beforeAll)));
+            restoreClassFixture(context, metadata);
+        }
+    }
+
+    /**
+     * prepare the data of @BeforeAll methods on the empty database, from the snapshot if it has been captured
+     */
+    private void restoreClassFixture(ExtensionContext context, TestClassMetadata metadata) throws SQLException {
+        ClassFixture fixture = getClassContext(context).getStore(NAMESPACE).get(ClassFixture.class, ClassFixture.class);
+        SnapshotCache snapshots = getSnapshotCache(context);
+        try (var con = getConnectionPool(context).getConnection()) {
+            if (!snapshots.restore(con, fixture.key)) {
+                execSql(context, con, metadata.beforeAll, true, null);
+                con.commit();
+                snapshots.capture(con, fixture.key, getResetStrategy(context, con));
+            }
+            con.commit();
+        }
+        fixture.reset = false;
     }
 
     @Override
     public void beforeTestExecution(ExtensionContext context) throws Exception {
-        Class<?> clazz = context.getRequiredTestClass();
-        for (Method m : clazz.getDeclaredMethods()) {
-            if (m.getAnnotationsByType(BeforeAll.class).length > 0 || m.getAnnotationsByType(BeforeEach.class).length > 0) {
-                ExecuteSql[] execSqls = m.getAnnotationsByType(ExecuteSql.class);
-                execSql(execSqls);
+        TestClassMetadata metadata = getMetadata(context);
+        TestMethodMetadata testMethod = metadata.getTestMethod(context.getRequiredTestMethod());
+        ClassFixture fixture = getClassContext(context).getStore(NAMESPACE).get(ClassFixture.class, ClassFixture.class);
+        List<Annotation> execSqls = new ArrayList<>(metadata.beforeEach);
+        // perform @ExecuteSql and @LoadData annotations
+        execSqls.addAll(testMethod.inputs);
+        boolean rollback = testMethod.isolationMode == IsolationMode.ROLLBACK;
+        boolean truncate = testMethod.isolationMode == IsolationMode.TRUNCATE;
+        SnapshotCache snapshots = getSnapshotCache(context);
+        String key = null;
+        if (!rollback && !truncate && testMethod.snapshot && !execSqls.isEmpty()) {
+            List<Annotation> allSqls = new ArrayList<>(metadata.beforeAll);
+            allSqls.addAll(execSqls);
+            key = SnapshotCache.key(allSqls);
+            context.getStore(NAMESPACE).put(EXISTS_SQL, Boolean.TRUE);
+            if (snapshots.contains(key)) {
+                // restore the database state prepared by the same SQL in a former test
+                if (fixture != null && !fixture.reset) {
+                    resetDatabase(context);
+                }
+                try (var con = getConnectionPool(context).getConnection()) {
+                    snapshots.restore(con, key);
+                    con.commit();
+                }
+                if (fixture != null) {
+                    fixture.reset = false;
+                }
+                return;
             }
         }
-        // perform @ExecuteSql annotations
-        ExecuteSql[] execSqls = context.getTestMethod().get().getAnnotationsByType(ExecuteSql.class);
-        execSql(execSqls);
+        if (fixture != null && fixture.reset) {
+            restoreClassFixture(context, metadata);
+        }
+        if (rollback) {
+            execSql(context, getTestConnection(context), execSqls, false, null);
+        } else if (truncate) {
+            try (var con = getConnectionPool(context).getConnection()) {
+                DirtyTableTracker tracker = new DirtyTableTracker(con);
+                context.getStore(NAMESPACE).put(DirtyTableTracker.class, tracker);
+                execSql(context, con, execSqls, true, tracker);
+                con.commit();
+            }
+        } else if (key != null) {
+            try (var con = getConnectionPool(context).getConnection()) {
+                execSql(context, con, execSqls, true, null);
+                con.commit();
+                snapshots.capture(con, key, getResetStrategy(context, con));
+            }
+        } else {
+            execSql(context, execSqls);
+        }
     }
 
     @Override
     public void afterTestExecution(ExtensionContext context) throws Exception {
-        if (existsSql) {
-            // drop all tables
-            try (var con = getConnection()) {
-                switch (con.getClass().getName()) {
-                case "org.h2.jdbc.JdbcConnection":
-                    con.prepareStatement("DROP ALL OBJECTS").executeUpdate();
-                    break;
-                default:
-                    System.err.println("not supported yet");
+        // give the connection of the test back before the database is reset
+        TestConnection testConnection = context.getStore(NAMESPACE).remove(TestConnection.class, TestConnection.class);
+        if (testConnection != null) {
+            testConnection.close();
+        }
+        if (getIsolationMode(context) == IsolationMode.ROLLBACK) {
+            // the changes of the test have been rolled back and the class fixture is kept
+            return;
+        }
+        ClassFixture fixture = getClassContext(context).getStore(NAMESPACE).get(ClassFixture.class, ClassFixture.class);
+        DirtyTableTracker tracker = context.getStore(NAMESPACE).remove(DirtyTableTracker.class, DirtyTableTracker.class);
+        if (tracker != null && truncateDirtyTables(context, tracker, fixture)) {
+            return;
+        }
+        if (fixture != null) {
+            // the class fixture is restored before the next test
+            resetDatabase(context);
+            fixture.reset = true;
+        } else if (context.getStore(NAMESPACE).get(EXISTS_SQL) != null) {
+            resetDatabase(context);
+        }
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) throws Exception {
+        ClassFixture fixture = context.getStore(NAMESPACE).remove(ClassFixture.class, ClassFixture.class);
+        if (fixture != null && !fixture.reset) {
+            resetDatabase(context);
+        }
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) throws ParameterResolutionException {
+        return parameterContext.getParameter().getType() == Connection.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) throws ParameterResolutionException {
+        if (extensionContext.getTestMethod().isEmpty()) {
+            throw new ParameterResolutionException("Connection can be injected only into test methods and @BeforeEach/@AfterEach methods");
+        }
+        return getTestConnection(extensionContext);
+    }
+
+    /**
+     * truncate the tables changed by the test and restore the rows of the class fixture into them
+     * @return false if the rows of the class fixture can not be restored
+     */
+    private boolean truncateDirtyTables(ExtensionContext context, DirtyTableTracker tracker, ClassFixture fixture) throws SQLException {
+        if (fixture != null && fixture.reset) {
+            // the database has been reset by a test in the other mode
+            return false;
+        }
+        try (var con = getConnectionPool(context).getConnection()) {
+            DatabaseResetStrategy strategy = getResetStrategy(context, con);
+            if (strategy == null) {
+                return false;
+            }
+            Set<String> created = tracker.getCreatedTables(con);
+            Set<String> dirty = tracker.getDirtyTables(con);
+            if (created.isEmpty() && dirty.isEmpty()) {
+                return true;
+            }
+            List<String> rows = fixture == null ? List.of() : getSnapshotCache(context).getTableData(fixture.key, dirty);
+            if (rows == null) {
+                return false;
+            }
+            try {
+                strategy.dropTables(con, created);
+                strategy.truncate(con, dirty);
+                try (Statement statement = con.createStatement()) {
+                    for (String sql : rows) {
+                        statement.addBatch(sql);
+                    }
+                    statement.executeBatch();
                 }
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                return false;
             }
         }
+        return true;
     }
 
-    private void execSql(ExecuteSql[] execSqls) throws ClassNotFoundException, SQLException, IOException {
-        List<SqlInput> sqlInputs = Stream.of(execSqls).map(ann -> new SqlInput(ann.value(), ann.resource())).flatMap(Stream::of).collect(Collectors.toList());
+    private void resetDatabase(ExtensionContext context) throws SQLException {
+        // drop all objects
+        try (var con = getConnectionPool(context).getConnection()) {
+            DatabaseResetStrategy strategy = getResetStrategy(context, con);
+            if (strategy == null) {
+                DatabaseMetaData metaData = con.getMetaData();
+                throw new ExtensionConfigurationException("no DatabaseResetStrategy supports " + metaData.getDatabaseProductName() + " (" + metaData.getURL() + ")");
+            }
+            strategy.reset(con);
+            con.commit();
+        }
+    }
+
+    private void execSql(ExtensionContext context, List<Annotation> execSqls) throws SQLException {
+        if (!execSqls.isEmpty()) {
+            try (var con = getConnectionPool(context).getConnection()) {
+                execSql(context, con, execSqls, true, null);
+                con.commit();
+            }
+        }
+    }
+
+    /**
+     * @param commitEachBatch commit after each batch of a script to bound the size of the transaction
+     * @param tracker receives the executed statements, or null
+     */
+    private void execSql(ExtensionContext context, Connection con, List<Annotation> execSqls, boolean commitEachBatch, DirtyTableTracker tracker) {
+        int batchSize = getBatchSize(context);
+        List<Input> sqlInputs = execSqls.stream().map(ann -> {
+            if (ann instanceof LoadData) {
+                LoadData ld = (LoadData) ann;
+                return new LoadDataInput(ld.table(), ld.resource(), ld.delimiter());
+            }
+            ExecuteSql es = (ExecuteSql) ann;
+            return new SqlInput(es.value(), es.resource(), es.delimiter());
+        }).collect(Collectors.toList());
         if (!sqlInputs.isEmpty()) {
-            existsSql = true;
-            try (var con = getConnection()) {
-                for (int i = 0; i < sqlInputs.size(); i ++) {
-                    try {
-                        // execute SQL
-                        sqlInputs.get(i).exec(con);
-                    } catch (SqlInputException e) {
-                        System.err.println(e.getLocalizedMessage());
-                    }
+            context.getStore(NAMESPACE).put(EXISTS_SQL, Boolean.TRUE);
+            for (int i = 0; i < sqlInputs.size(); i ++) {
+                try {
+                    // execute SQL
+                    sqlInputs.get(i).exec(con, batchSize, commitEachBatch, tracker);
+                } catch (SqlInputException e) {
+                    System.err.println(e.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Annotations of a test class including the ones inherited from the superclasses and interfaces.
+     */
+    static class TestClassMetadata {
+        final List<Annotation> beforeAll = new ArrayList<>();
+        final List<Annotation> beforeEach = new ArrayList<>();
+        final IsolationMode isolationMode;
+        final boolean snapshot;
+        private final Map<Method, TestMethodMetadata> testMethods = new ConcurrentHashMap<>();
+
+        TestClassMetadata(Class<?> clazz) {
+            for (Method m : ReflectionSupport.findMethods(clazz, m -> AnnotationSupport.isAnnotated(m, BeforeAll.class), HierarchyTraversalMode.TOP_DOWN)) {
+                beforeAll.addAll(getInputAnnotations(m));
+            }
+            for (Method m : ReflectionSupport.findMethods(clazz, m -> AnnotationSupport.isAnnotated(m, BeforeEach.class), HierarchyTraversalMode.TOP_DOWN)) {
+                beforeEach.addAll(getInputAnnotations(m));
+            }
+            this.isolationMode = AnnotationSupport.findAnnotation(clazz, DatabaseIsolation.class).map(DatabaseIsolation::value).orElse(IsolationMode.DROP_ALL);
+            this.snapshot = AnnotationSupport.isAnnotated(clazz, DatabaseSnapshot.class);
+        }
+
+        TestMethodMetadata getTestMethod(Method m) {
+            return testMethods.computeIfAbsent(m, key -> new TestMethodMetadata(key, this));
+        }
+    }
+
+    static class TestMethodMetadata {
+        final List<Annotation> inputs;
+        final IsolationMode isolationMode;
+        final boolean snapshot;
+
+        TestMethodMetadata(Method m, TestClassMetadata classMetadata) {
+            this.inputs = getInputAnnotations(m);
+            this.isolationMode = AnnotationSupport.findAnnotation(m, DatabaseIsolation.class).map(DatabaseIsolation::value).orElse(classMetadata.isolationMode);
+            this.snapshot = classMetadata.snapshot || AnnotationSupport.isAnnotated(m, DatabaseSnapshot.class);
+        }
+    }
+
+    /**
+     * State of the data prepared by the @BeforeAll methods of a class.
+     */
+    static class ClassFixture {
+        final String key;
+        /**
+         * the database has been reset after a test and the fixture has to be restored
+         */
+        boolean reset;
+
+        ClassFixture(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Connection used by a test in ROLLBACK mode. Its transaction is rolled back when the test ends.
+     */
+    static class TestConnection implements ExtensionContext.Store.CloseableResource {
+        final Connection con;
+
+        TestConnection(Connection con) {
+            this.con = con;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!con.isClosed()) {
+                try {
+                    con.rollback();
+                } finally {
+                    con.close();
                 }
-                con.commit();
             }
         }
     }
 
-    static class SqlInput {
+    interface Input {
+        void exec(Connection con, int batchSize, boolean commitEachBatch, DirtyTableTracker tracker) throws SqlInputException;
+    }
+
+    static class SqlInput implements Input {
         String sql;
         String resource;
+        String delimiter;
     
-        SqlInput(String sql, String resource) {
+        SqlInput(String sql, String resource, String delimiter) {
             this.sql = sql;
             this.resource = resource;
+            this.delimiter = delimiter;
         }
 
-        void exec(Connection con) throws SqlInputException {
+        @Override
+        public void exec(Connection con, int batchSize, boolean commitEachBatch, DirtyTableTracker tracker) throws SqlInputException {
             if (!sql.isBlank()) {
                 // execute single SQL
-                try {
-                    con.prepareStatement(sql).executeUpdate();
+                if (tracker != null) {
+                    tracker.addStatement(sql);
+                }
+                try (var statement = con.prepareStatement(sql)) {
+                    statement.executeUpdate();
                 } catch (SQLException e) {
                     throw new SqlInputException(e, sql);
                 }
             } else {
                 // read SQL file from resource
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getClassLoader().getResourceAsStream(resource)))) {
+                InputStream in = getClass().getClassLoader().getResourceAsStream(resource);
+                if (in == null) {
+                    System.err.println("resource not found : " + resource);
+                    return;
+                }
+                try (SqlScriptReader reader = new SqlScriptReader(new InputStreamReader(in, StandardCharsets.UTF_8), delimiter)) {
                     try (Statement statement = con.createStatement()) {
-                        boolean existsSql = false;
-                        while (reader.ready()) {
-                            String line = reader.readLine();
-                            if (!line.startsWith("--")) {
-                                statement.addBatch(line);
-                                existsSql = true;
+                        int count = 0;
+                        String line;
+                        while ((line = reader.nextStatement()) != null) {
+                            if (tracker != null) {
+                                tracker.addStatement(line);
+                            }
+                            statement.addBatch(line);
+                            if (++count % batchSize == 0) {
+                                statement.executeBatch();
+                                if (commitEachBatch) {
+                                    con.commit();
+                                }
                             }
                         }
-                        if (existsSql) {
+                        if (count % batchSize != 0) {
                             statement.executeBatch();
                         }
                     } catch (SQLException e) {
                         e.printStackTrace();
                         throw new SqlInputException(e, resource);
                     }
-                } catch (IOException | NullPointerException e) {
-                    System.err.println("resource not found : " + resource);
+                } catch (IOException e) {
+                    System.err.println("failed to read resource : " + resource);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a CSV/TSV resource into a table.
+     * H2 reads the file by itself with CSVREAD, and the other databases insert the rows
+     * in batches with one PreparedStatement.
+     */
+    static class LoadDataInput implements Input {
+        String table;
+        String resource;
+        String delimiter;
+
+        LoadDataInput(String table, String resource, String delimiter) {
+            this.table = table;
+            this.resource = resource;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        public void exec(Connection con, int batchSize, boolean commitEachBatch, DirtyTableTracker tracker) throws SqlInputException {
+            if (tracker != null) {
+                tracker.addTable(table);
+            }
+            URL url = getClass().getClassLoader().getResource(resource);
+            if (url == null) {
+                System.err.println("resource not found : " + resource);
+                return;
+            }
+            char separator = delimiter.isEmpty() ? ',' : delimiter.charAt(0);
+            try (CsvReader reader = new CsvReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8), separator)) {
+                String[] columns = reader.nextRecord();
+                if (columns == null) {
+                    return;
+                }
+                String columnList = String.join(", ", columns);
+                if ("file".equals(url.getProtocol()) && "H2".equals(con.getMetaData().getDatabaseProductName())) {
+                    // bulk load by H2 itself
+                    String file = Paths.get(url.toURI()).toString().replace("'", "''");
+                    String options = ("charset=UTF-8 fieldSeparator=" + separator).replace("'", "''");
+                    try (Statement statement = con.createStatement()) {
+                        statement.executeUpdate("INSERT INTO " + table + " (" + columnList + ") SELECT * FROM CSVREAD('" + file + "', NULL, '" + options + "')");
+                    }
+                    return;
+                }
+                String sql = "INSERT INTO " + table + " (" + columnList + ") VALUES (" + "?, ".repeat(columns.length - 1) + "?)";
+                try (PreparedStatement statement = con.prepareStatement(sql)) {
+                    int[] types = new int[columns.length];
+                    try {
+                        ParameterMetaData meta = statement.getParameterMetaData();
+                        for (int i = 0; i < columns.length; i++) {
+                            types[i] = meta.getParameterType(i + 1);
+                        }
+                    } catch (SQLException e) {
+                        Arrays.fill(types, Types.VARCHAR);
+                    }
+                    int count = 0;
+                    String[] values;
+                    while ((values = reader.nextRecord()) != null) {
+                        for (int i = 0; i < columns.length; i++) {
+                            String value = i < values.length ? values[i] : null;
+                            if (value == null) {
+                                statement.setNull(i + 1, types[i]);
+                            } else {
+                                statement.setObject(i + 1, value, types[i]);
+                            }
+                        }
+                        statement.addBatch();
+                        if (++count % batchSize == 0) {
+                            statement.executeBatch();
+                            if (commitEachBatch) {
+                                con.commit();
+                            }
+                        }
+                    }
+                    if (count % batchSize != 0) {
+                        statement.executeBatch();
+                    }
                 }
+            } catch (SQLException e) {
+                throw new SqlInputException(e, resource);
+            } catch (IOException | URISyntaxException e) {
+                System.err.println("failed to read resource : " + resource);
             }
         }
     }
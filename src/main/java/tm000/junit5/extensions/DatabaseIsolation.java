@@ -0,0 +1,14 @@
+package tm000.junit5.extensions;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface DatabaseIsolation {
+    IsolationMode value() default IsolationMode.DROP_ALL;
+}
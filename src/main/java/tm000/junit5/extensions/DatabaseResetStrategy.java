@@ -0,0 +1,67 @@
+package tm000.junit5.extensions;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resets the test database for {@link DatabaseExtension}.
+ * Implementations are loaded by {@link java.util.ServiceLoader} from
+ * META-INF/services/tm000.junit5.extensions.DatabaseResetStrategy and the first one which supports the database is used.
+ * The strategies registered by the other jars take precedence over the built-in strategies for H2, HSQLDB, Derby and SQLite.
+ * The connections are not in auto commit mode and the caller commits after the strategy returns.
+ */
+public interface DatabaseResetStrategy {
+
+    /**
+     * @return true if this strategy can reset the database
+     */
+    boolean supports(DatabaseMetaData metaData) throws SQLException;
+
+    /**
+     * drop all objects of the current schema
+     */
+    void reset(Connection con) throws SQLException;
+
+    /**
+     * delete all rows of the tables
+     */
+    default void truncate(Connection con, Collection<String> tables) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            for (String table : tables) {
+                statement.addBatch("DELETE FROM " + quote(table));
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * drop the tables created by a test
+     */
+    default void dropTables(Connection con, Collection<String> tables) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            for (String table : tables) {
+                statement.addBatch("DROP TABLE " + quote(table));
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * the statements which recreate the objects and the rows of the current schema
+     * @return null if the database can not be scripted, and then {@link DatabaseSnapshot} is ignored
+     */
+    default List<String> script(Connection con) throws SQLException {
+        return null;
+    }
+
+    /**
+     * quote the table name as a case sensitive identifier
+     */
+    default String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,17 @@
+package tm000.junit5.extensions;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Capture the database state prepared by {@link ExecuteSql} and restore it in the tests
+ * which execute the same SQL instead of executing the SQL again.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface DatabaseSnapshot {
+}
@@ -0,0 +1,84 @@
+package tm000.junit5.extensions;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Apache Derby: drops the objects of the current schema one by one.
+ * The tables which are not referenced by foreign keys are truncated, and the others are deleted
+ * after the tables referencing them because Derby can not disable the constraints.
+ * The identity columns are restarted from their start values.
+ */
+public class DerbyResetStrategy extends MetaDataResetStrategy {
+
+    @Override
+    public boolean supports(DatabaseMetaData metaData) throws SQLException {
+        return "Apache Derby".equals(metaData.getDatabaseProductName());
+    }
+
+    @Override
+    public void reset(Connection con) throws SQLException {
+        String schema = currentSchema(con);
+        dropObjects(con, schema);
+        List<String> sequences = new ArrayList<>();
+        try (PreparedStatement statement = con.prepareStatement(
+                "SELECT s.SEQUENCENAME FROM SYS.SYSSEQUENCES s JOIN SYS.SYSSCHEMAS c ON s.SCHEMAID = c.SCHEMAID WHERE c.SCHEMANAME = ?")) {
+            statement.setString(1, schema);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    sequences.add(rs.getString(1));
+                }
+            }
+        }
+        if (!sequences.isEmpty()) {
+            try (Statement statement = con.createStatement()) {
+                for (String sequence : sequences) {
+                    statement.addBatch("DROP SEQUENCE " + quote(schema) + "." + quote(sequence) + " RESTRICT");
+                }
+                statement.executeBatch();
+            }
+        }
+    }
+
+    @Override
+    public void truncate(Connection con, Collection<String> tables) throws SQLException {
+        String schema = currentSchema(con);
+        Map<String, Set<String>> ordered = childrenFirst(con, schema, tables);
+        try (Statement statement = con.createStatement()) {
+            for (Map.Entry<String, Set<String>> table : ordered.entrySet()) {
+                statement.addBatch((table.getValue().isEmpty() ? "TRUNCATE TABLE " : "DELETE FROM ") + quote(table.getKey()));
+            }
+            // TRUNCATE does not restart the identity columns
+            try (PreparedStatement identities = con.prepareStatement(
+                    "SELECT c.COLUMNNAME, c.AUTOINCREMENTSTART FROM SYS.SYSCOLUMNS c JOIN SYS.SYSTABLES t ON c.REFERENCEID = t.TABLEID "
+                    + "JOIN SYS.SYSSCHEMAS s ON t.SCHEMAID = s.SCHEMAID WHERE s.SCHEMANAME = ? AND t.TABLENAME = ? AND c.AUTOINCREMENTINC IS NOT NULL")) {
+                for (String table : ordered.keySet()) {
+                    identities.setString(1, schema);
+                    identities.setString(2, table);
+                    try (ResultSet rs = identities.executeQuery()) {
+                        while (rs.next()) {
+                            statement.addBatch("ALTER TABLE " + quote(table) + " ALTER COLUMN " + quote(rs.getString(1)) + " RESTART WITH " + rs.getLong(2));
+                        }
+                    }
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static String currentSchema(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery("VALUES CURRENT SCHEMA")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package tm000.junit5.extensions;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the tables which a test has changed.
+ * The tables written by the SQL of @ExecuteSql and @LoadData are found by parsing the statements,
+ * and on H2 the modification counters of INFORMATION_SCHEMA.TABLES also find the tables
+ * changed by the test itself.
+ */
+class DirtyTableTracker {
+    private static final String NAME = "(\"[^\"]+\"|[\\w$]+)(?:\\s*\\.\\s*(\"[^\"]+\"|[\\w$]+))?";
+    private static final Pattern TABLE_NAME = Pattern.compile("^\\s*" + NAME);
+    private static final Pattern CREATE = Pattern.compile(
+            "^\\s*CREATE\\s+(?:(?:CACHED|MEMORY|LOCAL|GLOBAL|TEMPORARY|TEMP)\\s+)*TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + NAME,
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern WRITE = Pattern.compile(
+            "^\\s*(?:INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|MERGE\\s+INTO|TRUNCATE\\s+TABLE|ALTER\\s+TABLE)\\s+" + NAME,
+            Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, Long> counters;
+    private final Set<String> written = new LinkedHashSet<>();
+    private final Set<String> created = new LinkedHashSet<>();
+
+    /**
+     * start tracking the changes made after this point
+     */
+    DirtyTableTracker(Connection con) throws SQLException {
+        this.counters = readCounters(con);
+    }
+
+    void addStatement(String sql) {
+        Matcher m = CREATE.matcher(sql);
+        if (m.find()) {
+            created.add(tableName(m));
+            return;
+        }
+        m = WRITE.matcher(sql);
+        if (m.find()) {
+            written.add(tableName(m));
+        }
+    }
+
+    void addTable(String table) {
+        written.add(normalize(table));
+    }
+
+    /**
+     * the tables which existed before the tracking started and have been changed
+     */
+    Set<String> getDirtyTables(Connection con) throws SQLException {
+        Set<String> dirty = new LinkedHashSet<>(written);
+        Map<String, Long> current = readCounters(con);
+        if (counters != null && current != null) {
+            dirty.removeIf(table -> !counters.containsKey(table));
+            counters.forEach((table, counter) -> {
+                Long now = current.get(table);
+                if (now != null && !now.equals(counter)) {
+                    dirty.add(table);
+                }
+            });
+        } else {
+            dirty.removeAll(created);
+        }
+        return dirty;
+    }
+
+    /**
+     * the tables which have been created after the tracking started
+     */
+    Set<String> getCreatedTables(Connection con) throws SQLException {
+        Map<String, Long> current = readCounters(con);
+        if (counters != null && current != null) {
+            Set<String> tables = new LinkedHashSet<>(current.keySet());
+            tables.removeAll(counters.keySet());
+            return tables;
+        }
+        return new LinkedHashSet<>(created);
+    }
+
+    /**
+     * modification counters of the tables in the current schema, or null if the database has no counters
+     */
+    private static Map<String, Long> readCounters(Connection con) throws SQLException {
+        if (!"H2".equals(con.getMetaData().getDatabaseProductName())) {
+            return null;
+        }
+        Map<String, Long> counters = new HashMap<>();
+        try (Statement statement = con.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT TABLE_NAME, LAST_MODIFICATION FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_TYPE = 'TABLE'")) {
+            while (rs.next()) {
+                counters.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return counters;
+    }
+
+    private static String tableName(Matcher m) {
+        String table = m.group(2) != null ? m.group(2) : m.group(1);
+        // quoted names are case sensitive and the others are stored in upper case
+        if (table.startsWith("\"")) {
+            return table.substring(1, table.length() - 1);
+        }
+        return table.toUpperCase(Locale.ROOT);
+    }
+
+    static String normalize(String name) {
+        Matcher m = TABLE_NAME.matcher(name);
+        return m.find() ? tableName(m) : name.toUpperCase(Locale.ROOT);
+    }
+}
@@ -12,4 +12,8 @@ import java.lang.annotation.Target;
 public @interface ExecuteSql {
     String value() default "";
     String resource() default "";
-}
\ No newline at end of file
+    /**
+     * delimiter of the statements in the resource
+     */
+    String delimiter() default ";";
+}
@@ -0,0 +1,73 @@
+package tm000.junit5.extensions;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * H2: DROP ALL OBJECTS, TRUNCATE with the referential integrity disabled and SCRIPT for the snapshots.
+ */
+public class H2ResetStrategy implements DatabaseResetStrategy {
+
+    @Override
+    public boolean supports(DatabaseMetaData metaData) throws SQLException {
+        return "H2".equals(metaData.getDatabaseProductName());
+    }
+
+    @Override
+    public void reset(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Override
+    public void truncate(Connection con, Collection<String> tables) throws SQLException {
+        if (tables.isEmpty()) {
+            return;
+        }
+        try (Statement statement = con.createStatement()) {
+            statement.addBatch("SET REFERENTIAL_INTEGRITY FALSE");
+            for (String table : tables) {
+                statement.addBatch("TRUNCATE TABLE " + quote(table) + " RESTART IDENTITY");
+            }
+            statement.addBatch("SET REFERENTIAL_INTEGRITY TRUE");
+            try {
+                statement.executeBatch();
+            } catch (SQLException e) {
+                statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void dropTables(Connection con, Collection<String> tables) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            for (String table : tables) {
+                statement.addBatch("DROP TABLE " + quote(table) + " CASCADE");
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @Override
+    public List<String> script(Connection con) throws SQLException {
+        List<String> script = new ArrayList<>();
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+            while (rs.next()) {
+                String sql = rs.getString(1);
+                // the user already exists and the comments are row counts
+                if (!sql.startsWith("CREATE USER") && !sql.startsWith("--")) {
+                    script.add(sql);
+                }
+            }
+        }
+        return script;
+    }
+}
@@ -0,0 +1,44 @@
+package tm000.junit5.extensions;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * HSQLDB: DROP SCHEMA PUBLIC CASCADE, which recreates the empty PUBLIC schema,
+ * and TRUNCATE in the transaction of the caller. HSQLDB checks the foreign keys of TRUNCATE even if the referential
+ * integrity is disabled, so the referencing tables are truncated before the referenced ones.
+ */
+public class HsqldbResetStrategy extends MetaDataResetStrategy {
+
+    @Override
+    public boolean supports(DatabaseMetaData metaData) throws SQLException {
+        return "HSQL Database Engine".equals(metaData.getDatabaseProductName());
+    }
+
+    @Override
+    public void reset(Connection con) throws SQLException {
+        String schema = con.getSchema();
+        if ("PUBLIC".equals(schema)) {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("DROP SCHEMA PUBLIC CASCADE");
+            }
+        } else {
+            dropObjects(con, schema);
+        }
+    }
+
+    @Override
+    public void truncate(Connection con, Collection<String> tables) throws SQLException {
+        Set<String> ordered = childrenFirst(con, con.getSchema(), tables).keySet();
+        try (Statement statement = con.createStatement()) {
+            for (String table : ordered) {
+                statement.addBatch("TRUNCATE TABLE " + quote(table) + " RESTART IDENTITY");
+            }
+            statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package tm000.junit5.extensions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits the bytes received on a connection into requests.
+ * An HTTP/1.1 request is framed by its headers and the body length given by Content-Length or the chunked encoding,
+ * so a request split across reads is one request and pipelined requests are separate requests.
+ * The data which does not start with an HTTP request line is a message of its own up to the end of the received bytes.
+ */
+class HttpRequestFramer {
+    private static final byte[][] METHODS = {
+        "GET ".getBytes(), "HEAD ".getBytes(), "POST ".getBytes(), "PUT ".getBytes(), "DELETE ".getBytes(),
+        "OPTIONS ".getBytes(), "TRACE ".getBytes(), "CONNECT ".getBytes(), "PATCH ".getBytes()
+    };
+    // the request can not be framed, and the rest of the connection neither
+    static final int MALFORMED = -1;
+
+    private HttpRequestFramer() {
+    }
+
+    /**
+     * @param buffer the received bytes in read mode, which is not changed
+     * @return the length of the next request from the position of the buffer, 0 if more bytes are needed,
+     *         or MALFORMED if the Content-Length is not a non-negative integer or the final transfer coding is not chunked
+     */
+    static int nextRequest(ByteBuffer buffer) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        if (start >= limit) {
+            return 0;
+        }
+        switch (matchMethod(buffer, start, limit)) {
+        case -1:
+            return limit - start;
+        case 0:
+            return 0;
+        default:
+        }
+        int headerEnd = headerEnd(buffer, start, limit);
+        if (headerEnd < 0) {
+            return 0;
+        }
+        String transferEncoding = headerText(buffer, start, headerEnd, "transfer-encoding");
+        if (transferEncoding != null) {
+            // the length of a request whose final coding is not chunked can not be determined
+            if (!isChunked(transferEncoding)) {
+                return MALFORMED;
+            }
+            int end = chunkedEnd(buffer, headerEnd, limit);
+            return end < 0 ? 0 : end - start;
+        }
+        long contentLength = contentLength(buffer, start, headerEnd);
+        if (contentLength < 0) {
+            return MALFORMED;
+        }
+        if (headerEnd + contentLength > limit) {
+            return 0;
+        }
+        return (int)(headerEnd + contentLength - start);
+    }
+
+    /**
+     * @return 1 if the data starts with a method and a space, 0 if it may do so with more bytes, and -1 if not
+     */
+    private static int matchMethod(ByteBuffer buffer, int start, int limit) {
+        int result = -1;
+        for (byte[] method : METHODS) {
+            int length = Math.min(method.length, limit - start);
+            int i = 0;
+            while (i < length && buffer.get(start + i) == method[i]) {
+                i++;
+            }
+            if (i == method.length) {
+                return 1;
+            } else if (i == length) {
+                result = 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the index after the empty line which ends the headers, or -1 if it has not been received
+     */
+    static int headerEnd(ByteBuffer buffer, int start, int limit) {
+        for (int i = start; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                if (i + 1 < limit && buffer.get(i + 1) == '\n') {
+                    return i + 2;
+                }
+                if (i + 2 < limit && buffer.get(i + 1) == '\r' && buffer.get(i + 2) == '\n') {
+                    return i + 3;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the Content-Length, 0 if there is no such header, or -1 if the value is not a number which fits in a buffer
+     */
+    private static long contentLength(ByteBuffer buffer, int start, int headerEnd) {
+        int value = headerValue(buffer, start, headerEnd, "content-length");
+        if (value < 0) {
+            return 0;
+        }
+        long length = 0;
+        int i = value;
+        for (; i < headerEnd; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            length = length * 10 + (b - '0');
+            if (length > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        if (i == value) {
+            return -1;
+        }
+        // only the whitespace may follow the digits
+        for (; i < headerEnd && buffer.get(i) != '\n'; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return -1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return true if the body is framed by the chunked encoding, which is the final coding of the Transfer-Encoding by RFC 9112.
+     *         "chunked, gzip" is not chunked, and "gzip, chunked" is.
+     */
+    static boolean isChunked(String transferEncoding) {
+        String last = transferEncoding.substring(transferEncoding.lastIndexOf(',') + 1).trim();
+        return "chunked".equalsIgnoreCase(last);
+    }
+
+    /**
+     * @return the value of the header with the name, or null if there is no such header
+     */
+    private static String headerText(ByteBuffer buffer, int start, int headerEnd, String name) {
+        int value = headerValue(buffer, start, headerEnd, name);
+        if (value < 0) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = value; i < headerEnd && buffer.get(i) != '\r' && buffer.get(i) != '\n'; i++) {
+            text.append((char)(buffer.get(i) & 0xff));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return the index of the value of the header with the name, or -1 if there is no such header
+     */
+    private static int headerValue(ByteBuffer buffer, int start, int headerEnd, String name) {
+        int line = start;
+        while (line < headerEnd) {
+            // the name starts at the beginning of a line and ends with a colon
+            if (line > start && line + name.length() < headerEnd && equalsIgnoreCase(buffer, line, name)
+                    && buffer.get(line + name.length()) == ':') {
+                int value = line + name.length() + 1;
+                while (value < headerEnd && (buffer.get(value) == ' ' || buffer.get(value) == '\t')) {
+                    value++;
+                }
+                return value;
+            }
+            while (line < headerEnd && buffer.get(line) != '\n') {
+                line++;
+            }
+            line++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index after the last chunk and the trailers, or -1 if they have not been received
+     */
+    private static int chunkedEnd(ByteBuffer buffer, int index, int limit) {
+        while (true) {
+            long size = 0;
+            int i = index;
+            int digits = 0;
+            for (; i < limit; i++) {
+                int digit = Character.digit(buffer.get(i), 16);
+                if (digit < 0) {
+                    break;
+                }
+                size = size * 16 + digit;
+                digits++;
+            }
+            // the chunk extensions are skipped
+            while (i < limit && buffer.get(i) != '\n') {
+                i++;
+            }
+            if (i >= limit || digits == 0) {
+                return -1;
+            }
+            i++;
+            if (size == 0) {
+                // the trailers end with an empty line
+                if (i < limit && buffer.get(i) == '\n') {
+                    return i + 1;
+                }
+                if (i + 1 < limit && buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') {
+                    return i + 2;
+                }
+                int end = headerEnd(buffer, i, limit);
+                return end;
+            }
+            index = (int)Math.min(Integer.MAX_VALUE, i + size);
+            // the data of the chunk ends with CRLF
+            while (index < limit && buffer.get(index) != '\n') {
+                index++;
+            }
+            if (index >= limit) {
+                return -1;
+            }
+            index++;
+        }
+    }
+
+    private static boolean equalsIgnoreCase(ByteBuffer buffer, int index, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.toLowerCase((char)buffer.get(index + i)) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
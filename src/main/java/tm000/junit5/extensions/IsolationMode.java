@@ -0,0 +1,25 @@
+package tm000.junit5.extensions;
+
+/**
+ * How {@link DatabaseExtension} isolates the data of a test from the other tests.
+ */
+public enum IsolationMode {
+    /**
+     * The prepared data is committed and the whole database is dropped after each test.
+     */
+    DROP_ALL,
+    /**
+     * The prepared data is executed in a transaction on a connection dedicated to the test
+     * and the transaction is rolled back after the test.
+     * The test should use the {@link java.sql.Connection} injected as a parameter to see the data.
+     */
+    ROLLBACK,
+    /**
+     * The prepared data is committed and only the tables changed by the test are truncated after the test.
+     * The tables created by the test are dropped, and the rows prepared by the @BeforeAll methods are
+     * restored into the truncated tables.
+     * On H2 the changes made by the test itself are found by the modification counters of the tables,
+     * and on the other databases only the tables written by @ExecuteSql and @LoadData are truncated.
+     */
+    TRUNCATE
+}
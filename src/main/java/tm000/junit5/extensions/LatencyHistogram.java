@@ -0,0 +1,123 @@
+package tm000.junit5.extensions;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of the durations in nanoseconds with the log-linear buckets of HdrHistogram:
+ * the values below 256 are counted exactly and each power of two above is divided into 128 buckets,
+ * so a percentile is reported within 1% of the recorded value. The threads record the values without a lock.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int LENGTH = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+
+    LatencyHistogram() {
+        this.counts = new AtomicLongArray(LENGTH);
+    }
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+    }
+
+    /**
+     * @return the copy of the values recorded so far
+     */
+    LatencyHistogram snapshot() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < LENGTH; i++) {
+            copy.counts.set(i, counts.get(i));
+        }
+        copy.count.set(count.get());
+        copy.total.set(total.get());
+        return copy;
+    }
+
+    /**
+     * @return the values recorded after the earlier snapshot
+     */
+    LatencyHistogram since(LatencyHistogram earlier) {
+        LatencyHistogram diff = new LatencyHistogram();
+        for (int i = 0; i < LENGTH; i++) {
+            diff.counts.set(i, counts.get(i) - earlier.counts.get(i));
+        }
+        diff.count.set(count.get() - earlier.count.get());
+        diff.total.set(total.get() - earlier.total.get());
+        return diff;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public Duration getMean() {
+        long n = count.get();
+        return Duration.ofNanos(n == 0 ? 0 : total.get() / n);
+    }
+
+    public Duration getMax() {
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return Duration.ofNanos(highestEquivalentValue(i));
+            }
+        }
+        return Duration.ZERO;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99.9
+     * @return the highest value equivalent to the one below which the percentile of the values fall
+     */
+    public Duration getValueAtPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return Duration.ZERO;
+        }
+        long target = Math.max(1, (long)Math.ceil(Math.min(100, percentile) / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Duration.ofNanos(highestEquivalentValue(i));
+            }
+        }
+        return getMax();
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF + (int)(value >>> shift) - HALF;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long top = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram[count=" + getCount() +
+                ", mean=" + getMean() +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", max=" + getMax() +
+                "]";
+    }
+}
@@ -0,0 +1,23 @@
+package tm000.junit5.extensions;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Load the rows of a CSV/TSV resource into a table.
+ * The first line of the resource is the header which has the column names.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(LoadDatas.class)
+public @interface LoadData {
+    String table();
+    String resource();
+    /**
+     * field separator, "\t" for TSV
+     */
+    String delimiter() default ",";
+}
@@ -0,0 +1,96 @@
+package tm000.junit5.extensions;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drops the objects of a schema found by {@link DatabaseMetaData}, for the databases without a single statement to do it.
+ */
+abstract class MetaDataResetStrategy implements DatabaseResetStrategy {
+
+    /**
+     * drop the foreign keys first so that the tables can be dropped in any order, then the views and the tables
+     */
+    void dropObjects(Connection con, String schema) throws SQLException {
+        DatabaseMetaData metaData = con.getMetaData();
+        List<String> tables = names(metaData.getTables(null, schema, "%", new String[] { "TABLE" }));
+        List<String> views = names(metaData.getTables(null, schema, "%", new String[] { "VIEW" }));
+        try (Statement statement = con.createStatement()) {
+            for (String table : tables) {
+                Set<String> foreignKeys = new LinkedHashSet<>();
+                try (ResultSet rs = metaData.getImportedKeys(null, schema, table)) {
+                    while (rs.next()) {
+                        foreignKeys.add(rs.getString("FK_NAME"));
+                    }
+                }
+                for (String fk : foreignKeys) {
+                    statement.addBatch("ALTER TABLE " + quote(schema) + "." + quote(table) + " DROP CONSTRAINT " + quote(fk));
+                }
+            }
+            for (String view : views) {
+                statement.addBatch("DROP VIEW " + quote(schema) + "." + quote(view));
+            }
+            for (String table : tables) {
+                statement.addBatch("DROP TABLE " + quote(schema) + "." + quote(table));
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * @return the tables mapped to the tables referencing them by foreign keys, in the order in which
+     *         the referencing tables come before the referenced ones
+     */
+    Map<String, Set<String>> childrenFirst(Connection con, String schema, Collection<String> tables) throws SQLException {
+        DatabaseMetaData metaData = con.getMetaData();
+        Map<String, Set<String>> referencedBy = new LinkedHashMap<>();
+        for (String table : tables) {
+            Set<String> children = new LinkedHashSet<>();
+            try (ResultSet rs = metaData.getExportedKeys(null, schema, table)) {
+                while (rs.next()) {
+                    children.add(rs.getString("FKTABLE_NAME"));
+                }
+            }
+            referencedBy.put(table, children);
+        }
+        Map<String, Set<String>> ordered = new LinkedHashMap<>();
+        Set<String> visited = new HashSet<>();
+        for (String table : tables) {
+            orderChildrenFirst(table, referencedBy, visited, ordered);
+        }
+        return ordered;
+    }
+
+    private static void orderChildrenFirst(String table, Map<String, Set<String>> referencedBy, Set<String> visited, Map<String, Set<String>> ordered) {
+        if (!visited.add(table)) {
+            return;
+        }
+        for (String child : referencedBy.get(table)) {
+            if (referencedBy.containsKey(child)) {
+                orderChildrenFirst(child, referencedBy, visited, ordered);
+            }
+        }
+        ordered.put(table, referencedBy.get(table));
+    }
+
+    static List<String> names(ResultSet rs) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (rs) {
+            while (rs.next()) {
+                names.add(rs.getString("TABLE_NAME"));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,125 @@
+package tm000.junit5.extensions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded journal of the requests received by {@link WebServerExtension} during a test.
+ * The worker threads record the requests without a lock: each of them claims a sequence number
+ * and stores the request in the slot of the ring for the number, so the heap used by the journal
+ * does not grow with the number of the requests.
+ */
+public class RequestJournal {
+    private final RequestRetention retention;
+    private final int sampleInterval;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap<String, LongAdder> pathCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * @param capacity the number of the kept requests, which is rounded up to a power of two
+     * @param sampleInterval the interval of the kept requests in {@link RequestRetention#SAMPLED}
+     */
+    RequestJournal(RequestRetention retention, int capacity, int sampleInterval) {
+        this.retention = retention;
+        this.sampleInterval = sampleInterval;
+        int size = retention == RequestRetention.OFF ? 1 : Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void record(SimpleHttpRequest request) {
+        long count = received.incrementAndGet();
+        if (request.getPath() != null) {
+            pathCounts.computeIfAbsent(request.getPath(), k -> new LongAdder()).increment();
+        }
+        if (retention == RequestRetention.RING
+                || (retention == RequestRetention.SAMPLED && (count - 1) % sampleInterval == 0)) {
+            long seq = sequence.getAndIncrement();
+            slots.set((int)(seq & mask), new Entry(seq, request));
+        }
+        if (waiters.get() > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    public RequestRetention getRetention() {
+        return retention;
+    }
+
+    /**
+     * @return the number of the received requests including the ones which are not kept
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * @return the number of the received requests to the path without the query string
+     */
+    public long countByPath(String path) {
+        LongAdder count = pathCounts.get(path);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @return the kept requests in the order of the arrival
+     */
+    public List<SimpleHttpRequest> getRequests() {
+        long end = sequence.get();
+        long start = Math.max(0, end - slots.length());
+        List<SimpleHttpRequest> list = new ArrayList<>((int)(end - start));
+        for (long seq = start; seq < end; seq++) {
+            Entry entry = slots.get((int)(seq & mask));
+            // the slot which is being stored or has been overwritten is skipped
+            if (entry != null && entry.seq == seq) {
+                list.add(entry.request);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * wait until the number of the received requests reaches the count
+     * @return false if the timeout has elapsed before
+     */
+    public boolean awaitRequests(long count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        waiters.incrementAndGet();
+        try {
+            synchronized (this) {
+                while (received.get() < count) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(Math.max(1, remaining / 1_000_000));
+                }
+            }
+            return true;
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private static class Entry {
+        final long seq;
+        final SimpleHttpRequest request;
+
+        Entry(long seq, SimpleHttpRequest request) {
+            this.seq = seq;
+            this.request = request;
+        }
+    }
+}
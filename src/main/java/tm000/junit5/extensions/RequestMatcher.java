@@ -0,0 +1,120 @@
+package tm000.junit5.extensions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Condition of the requests to which a stub response is returned.
+ * The path pattern consists of the segments separated by '/', in which "*" matches any one segment
+ * and "**" at the end matches the rest of the path. An empty pattern matches any path.
+ * <pre>
+ * server.when(RequestMatcher.get("/api/users/*").header("Accept", "application/json"))
+ *     .respond(200, "application/json", "{\"id\":1}");
+ * </pre>
+ */
+public class RequestMatcher {
+    private String method;
+    private String path = "";
+    private final List<String[]> headers = new ArrayList<>();
+    private Predicate<String> body;
+
+    /**
+     * @return the matcher of any request, which is narrowed by the other methods
+     */
+    public static RequestMatcher request() {
+        return new RequestMatcher();
+    }
+
+    public static RequestMatcher get(String path) {
+        return request().method("GET").path(path);
+    }
+
+    public static RequestMatcher post(String path) {
+        return request().method("POST").path(path);
+    }
+
+    public static RequestMatcher put(String path) {
+        return request().method("PUT").path(path);
+    }
+
+    public static RequestMatcher delete(String path) {
+        return request().method("DELETE").path(path);
+    }
+
+    public RequestMatcher method(String method) {
+        this.method = method == null || method.isEmpty() ? null : method;
+        return this;
+    }
+
+    public RequestMatcher path(String path) {
+        if (!path.isEmpty() && !path.startsWith("/")) {
+            throw new IllegalArgumentException("the path pattern must start with '/': " + path);
+        }
+        this.path = path;
+        return this;
+    }
+
+    /**
+     * @param value the value of the header, or "*" to match any value
+     */
+    public RequestMatcher header(String name, String value) {
+        headers.add(new String[] { name, value });
+        return this;
+    }
+
+    public RequestMatcher body(Predicate<String> body) {
+        this.body = this.body == null ? body : this.body.and(body);
+        return this;
+    }
+
+    public RequestMatcher bodyContains(String text) {
+        return body(b -> b.contains(text));
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * @return true if the method, the headers and the body of the request match, the path is matched by the router
+     */
+    boolean matches(SimpleHttpRequest request) {
+        if (method != null && !method.equals(request.getMethod())) {
+            return false;
+        }
+        for (String[] header : headers) {
+            String value = request.getHeader(header[0]);
+            if (value == null || (!"*".equals(header[1]) && !header[1].equals(value))) {
+                return false;
+            }
+        }
+        return body == null || body.test(request.getBodyAsString());
+    }
+
+    /**
+     * @return the matcher of the routing attributes, or null if the annotation has none of them
+     */
+    static RequestMatcher of(SimpleHttpResponse res) {
+        if (res.method().isEmpty() && res.path().isEmpty() && res.headers().length == 0 && res.bodyContains().isEmpty()) {
+            return null;
+        }
+        RequestMatcher matcher = request().method(res.method()).path(res.path());
+        for (String header : res.headers()) {
+            int colon = header.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("the header must be \"Name: value\": " + header);
+            }
+            matcher.header(header.substring(0, colon).trim(), header.substring(colon + 1).trim());
+        }
+        if (!res.bodyContains().isEmpty()) {
+            matcher.bodyContains(res.bodyContains());
+        }
+        return matcher;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestMatcher[method=" + method + ", path=" + path + "]";
+    }
+}
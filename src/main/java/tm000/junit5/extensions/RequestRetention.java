@@ -0,0 +1,20 @@
+package tm000.junit5.extensions;
+
+/**
+ * Which requests the {@link RequestJournal} of {@link WebServerExtension} keeps.
+ * The number of the received requests and the counts by path are kept in every mode.
+ */
+public enum RequestRetention {
+    /**
+     * The latest requests up to the capacity of the journal are kept and the older ones are overwritten.
+     */
+    RING,
+    /**
+     * Every n-th request given by the sample interval is kept in the ring of the journal.
+     */
+    SAMPLED,
+    /**
+     * No request is kept, for the soak tests which only count the requests.
+     */
+    OFF
+}
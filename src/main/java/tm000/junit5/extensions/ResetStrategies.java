@@ -0,0 +1,50 @@
+package tm000.junit5.extensions;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link DatabaseResetStrategy} implementations found by {@link ServiceLoader}, kept in the root store.
+ */
+class ResetStrategies {
+    private final List<DatabaseResetStrategy> strategies = new ArrayList<>();
+    private final Map<String, Optional<DatabaseResetStrategy>> byUrl = new ConcurrentHashMap<>();
+
+    ResetStrategies() {
+        List<DatabaseResetStrategy> builtIn = new ArrayList<>();
+        for (DatabaseResetStrategy strategy : ServiceLoader.load(DatabaseResetStrategy.class)) {
+            if (strategy.getClass().getPackage() == DatabaseResetStrategy.class.getPackage()) {
+                builtIn.add(strategy);
+            } else {
+                strategies.add(strategy);
+            }
+        }
+        strategies.addAll(builtIn);
+    }
+
+    /**
+     * @return null if no strategy supports the database
+     */
+    DatabaseResetStrategy find(Connection con) throws SQLException {
+        DatabaseMetaData metaData = con.getMetaData();
+        Optional<DatabaseResetStrategy> strategy = byUrl.get(metaData.getURL());
+        if (strategy == null) {
+            strategy = Optional.empty();
+            for (DatabaseResetStrategy s : strategies) {
+                if (s.supports(metaData)) {
+                    strategy = Optional.of(s);
+                    break;
+                }
+            }
+            byUrl.put(metaData.getURL(), strategy);
+        }
+        return strategy.orElse(null);
+    }
+}
@@ -0,0 +1,91 @@
+package tm000.junit5.extensions;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency, bandwidth and fault of a response, which are given by {@link SimpleHttpResponse}
+ * or by the builder of {@link WebServerExtension} for the responses without their own.
+ */
+class ResponseBehavior {
+    static final ResponseBehavior NONE = new ResponseBehavior(0, 0, 0, ResponseFault.NONE, 1.0);
+
+    // milliseconds before the first byte, uniformly distributed up to delayMax if it is greater
+    final long delay;
+    final long delayMax;
+    final long bytesPerSecond;
+    final ResponseFault fault;
+    // probability with which the fault is injected
+    final double faultRate;
+
+    ResponseBehavior(long delay, long delayMax, long bytesPerSecond, ResponseFault fault, double faultRate) {
+        if (delay < 0 || delayMax < 0 || bytesPerSecond < 0) {
+            throw new IllegalArgumentException("delay, delayMax and bytesPerSecond must not be negative");
+        }
+        if (faultRate < 0 || faultRate > 1) {
+            throw new IllegalArgumentException("faultRate must be between 0 and 1: " + faultRate);
+        }
+        this.delay = delay;
+        this.delayMax = delayMax;
+        this.bytesPerSecond = bytesPerSecond;
+        this.fault = fault;
+        this.faultRate = faultRate;
+    }
+
+    static ResponseBehavior of(SimpleHttpResponse res) {
+        if (res.delay() == 0 && res.delayMax() == 0 && res.bytesPerSecond() == 0 && res.fault() == ResponseFault.NONE) {
+            return NONE;
+        }
+        return new ResponseBehavior(res.delay(), res.delayMax(), res.bytesPerSecond(), res.fault(), res.faultRate());
+    }
+
+    /**
+     * @return the behavior in which the attributes this does not set are taken from the defaults
+     */
+    ResponseBehavior orElse(ResponseBehavior defaults) {
+        boolean delayed = delay > 0 || delayMax > 0;
+        return new ResponseBehavior(delayed ? delay : defaults.delay,
+                                    delayed ? delayMax : defaults.delayMax,
+                                    bytesPerSecond > 0 ? bytesPerSecond : defaults.bytesPerSecond,
+                                    fault != ResponseFault.NONE ? fault : defaults.fault,
+                                    fault != ResponseFault.NONE ? faultRate : defaults.faultRate);
+    }
+
+    long nextDelayNanos() {
+        long millis = delayMax > delay ? ThreadLocalRandom.current().nextLong(delay, delayMax + 1) : delay;
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    ResponseFault nextFault() {
+        if (fault == ResponseFault.NONE || (faultRate < 1 && ThreadLocalRandom.current().nextDouble() >= faultRate)) {
+            return ResponseFault.NONE;
+        }
+        return fault;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ResponseBehavior)) {
+            return false;
+        }
+        ResponseBehavior other = (ResponseBehavior)obj;
+        return delay == other.delay && delayMax == other.delayMax && bytesPerSecond == other.bytesPerSecond
+                && fault == other.fault && faultRate == other.faultRate;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(delay, delayMax, bytesPerSecond, fault, faultRate);
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseBehavior[delay=" + delay +
+                ", delayMax=" + delayMax +
+                ", bytesPerSecond=" + bytesPerSecond +
+                ", fault=" + fault +
+                ", faultRate=" + faultRate +
+                "]";
+    }
+}
@@ -0,0 +1,21 @@
+package tm000.junit5.extensions;
+
+/**
+ * Fault of the connection injected by {@link WebServerExtension} in place of a normal response,
+ * to exercise the error handling of the clients.
+ */
+public enum ResponseFault {
+    NONE,
+    /**
+     * The connection is reset (RST) instead of the response being written.
+     */
+    CONNECTION_RESET,
+    /**
+     * The first half of the response is written and the connection is closed.
+     */
+    PARTIAL_RESPONSE,
+    /**
+     * The response advertises keep-alive, but the connection is closed after it has been written.
+     */
+    DROP_KEEP_ALIVE
+}
@@ -0,0 +1,108 @@
+package tm000.junit5.extensions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import tm000.junit5.extensions.WebServerExtension.Response;
+
+/**
+ * Trie of the path patterns of the stub responses, which is searched segment by segment,
+ * so the time to find the response does not depend on the number of the stubs.
+ * A literal segment has priority over "*", which has priority over "**", and the routes of the same
+ * pattern are tried in the order of the addition. The routes can be added while the requests are routed.
+ */
+class ResponseRouter {
+    private final Node root = new Node();
+
+    void add(RequestMatcher matcher, Response response) {
+        Node node = root;
+        String path = matcher.getPath();
+        int start = 1;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            String segment = path.substring(start, end);
+            if ("**".equals(segment) && end == path.length()) {
+                break;
+            }
+            node = "*".equals(segment) ? node.wildcard() : node.child(segment);
+            start = end + 1;
+        }
+        Route route = new Route(matcher, response);
+        if (path.isEmpty() || path.endsWith("/**")) {
+            node.rest.add(route);
+        } else {
+            node.routes.add(route);
+        }
+    }
+
+    /**
+     * @return the response of the first route which matches the request, or null
+     */
+    Response route(SimpleHttpRequest request) {
+        String path = request.getPath();
+        if (path == null || !path.startsWith("/")) {
+            return null;
+        }
+        return find(root, path, 1, request);
+    }
+
+    private Response find(Node node, String path, int start, SimpleHttpRequest request) {
+        if (start > path.length()) {
+            Response response = match(node.routes, request);
+            return response != null ? response : match(node.rest, request);
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        Node child = node.children.get(path.substring(start, end));
+        Response response = child == null ? null : find(child, path, end + 1, request);
+        if (response == null && node.wildcard != null) {
+            response = find(node.wildcard, path, end + 1, request);
+        }
+        return response != null ? response : match(node.rest, request);
+    }
+
+    private static Response match(List<Route> routes, SimpleHttpRequest request) {
+        for (Route route : routes) {
+            if (route.matcher.matches(request)) {
+                return route.response;
+            }
+        }
+        return null;
+    }
+
+    private static class Node {
+        final Map<String, Node> children = new ConcurrentHashMap<>();
+        volatile Node wildcard;
+        final List<Route> routes = new CopyOnWriteArrayList<>();
+        // the routes which match the rest of the path from this node
+        final List<Route> rest = new CopyOnWriteArrayList<>();
+
+        Node child(String segment) {
+            return children.computeIfAbsent(segment, key -> new Node());
+        }
+
+        synchronized Node wildcard() {
+            if (wildcard == null) {
+                wildcard = new Node();
+            }
+            return wildcard;
+        }
+    }
+
+    private static class Route {
+        final RequestMatcher matcher;
+        final Response response;
+
+        Route(RequestMatcher matcher, Response response) {
+            this.matcher = matcher;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package tm000.junit5.extensions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Snapshot of the throughput, the latency and the connections of the server of {@link WebServerExtension}.
+ * The latency is measured from the read of a request to the completion of the write of its response,
+ * and the handshake time from the accept of a TLS connection to the end of its handshake.
+ */
+public class ServerMetrics {
+    private final long elapsedNanos;
+    private final long requests;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final long activeConnections;
+    private final long totalConnections;
+    private final LatencyHistogram latency;
+    private final LatencyHistogram handshakeTime;
+
+    ServerMetrics(long elapsedNanos, long requests, long bytesIn, long bytesOut, long activeConnections, long totalConnections,
+                  LatencyHistogram latency, LatencyHistogram handshakeTime) {
+        this.elapsedNanos = elapsedNanos;
+        this.requests = requests;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.activeConnections = activeConnections;
+        this.totalConnections = totalConnections;
+        this.latency = latency;
+        this.handshakeTime = handshakeTime;
+    }
+
+    /**
+     * @return the metrics between the earlier snapshot and this, the active connections are the ones of this
+     */
+    public ServerMetrics since(ServerMetrics earlier) {
+        return new ServerMetrics(elapsedNanos - earlier.elapsedNanos, requests - earlier.requests,
+                                 bytesIn - earlier.bytesIn, bytesOut - earlier.bytesOut,
+                                 activeConnections, totalConnections - earlier.totalConnections,
+                                 latency.since(earlier.latency), handshakeTime.since(earlier.handshakeTime));
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the requests received per second over the measured period
+     */
+    public double getRequestsPerSecond() {
+        return elapsedNanos <= 0 ? 0 : requests * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getActiveConnections() {
+        return activeConnections;
+    }
+
+    public long getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * @return the histogram of the time from the read of the requests to the end of the write of their responses
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the histogram of the TLS handshake time, which is empty without enableSecurity
+     */
+    public LatencyHistogram getHandshakeTime() {
+        return handshakeTime;
+    }
+
+    /**
+     * @return the entry published to the test report, the durations are in microseconds
+     */
+    Map<String, String> toReportEntry() {
+        Map<String, String> entry = new LinkedHashMap<>();
+        entry.put("requests", String.valueOf(requests));
+        entry.put("requestsPerSecond", String.format("%.1f", getRequestsPerSecond()));
+        entry.put("latencyP50", micros(latency, 50));
+        entry.put("latencyP90", micros(latency, 90));
+        entry.put("latencyP99", micros(latency, 99));
+        entry.put("latencyMax", String.valueOf(latency.getMax().toNanos() / 1000));
+        entry.put("bytesIn", String.valueOf(bytesIn));
+        entry.put("bytesOut", String.valueOf(bytesOut));
+        entry.put("totalConnections", String.valueOf(totalConnections));
+        entry.put("activeConnections", String.valueOf(activeConnections));
+        if (handshakeTime.getCount() > 0) {
+            entry.put("handshakeP50", micros(handshakeTime, 50));
+            entry.put("handshakeP99", micros(handshakeTime, 99));
+        }
+        return entry;
+    }
+
+    private static String micros(LatencyHistogram histogram, double percentile) {
+        return String.valueOf(histogram.getValueAtPercentile(percentile).toNanos() / 1000);
+    }
+
+    @Override
+    public String toString() {
+        return "ServerMetrics[requests=" + this.requests +
+                ", requestsPerSecond=" + String.format("%.1f", getRequestsPerSecond()) +
+                ", bytesIn=" + this.bytesIn +
+                ", bytesOut=" + this.bytesOut +
+                ", activeConnections=" + this.activeConnections +
+                ", totalConnections=" + this.totalConnections +
+                ", latency=" + this.latency +
+                ", handshakeTime=" + this.handshakeTime +
+                "]";
+    }
+
+    /**
+     * Counters updated by the server threads, which are added without a lock
+     */
+    static class Recorder {
+        private final long start = System.nanoTime();
+        final LongAdder requests = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder activeConnections = new LongAdder();
+        final LongAdder totalConnections = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram handshakeTime = new LatencyHistogram();
+
+        void connectionOpened() {
+            totalConnections.increment();
+            activeConnections.increment();
+        }
+
+        void connectionClosed() {
+            activeConnections.decrement();
+        }
+
+        ServerMetrics snapshot() {
+            return new ServerMetrics(System.nanoTime() - start, requests.sum(), bytesIn.sum(), bytesOut.sum(),
+                                     activeConnections.sum(), totalConnections.sum(),
+                                     latency.snapshot(), handshakeTime.snapshot());
+        }
+    }
+}
@@ -1,9 +1,26 @@
 package tm000.junit5.extensions;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 public class SimpleHttpRequest {
+    private static final byte[] EMPTY_BODY = new byte[0];
+
     private String method;
     private String url;
+    private String path;
+    private String query;
     private String protocol;
+    // the names and the values of the headers in turn, which are few enough to be searched linearly
+    private final List<String> headers = new ArrayList<>();
+    private Map<String, List<String>> queryParameters = Collections.emptyMap();
+    private byte[] body = EMPTY_BODY;
+    private String text;
 
     public SimpleHttpRequest method(String method) {
         this.method = method;
@@ -15,11 +32,124 @@ public class SimpleHttpRequest {
         return this;
     }
 
+    public SimpleHttpRequest path(String path) {
+        this.path = path;
+        return this;
+    }
+
+    public SimpleHttpRequest query(String query) {
+        this.query = query;
+        return this;
+    }
+
     public SimpleHttpRequest protocol(String protocol) {
         this.protocol = protocol;
         return this;
     }
 
+    public SimpleHttpRequest header(String name, String value) {
+        headers.add(name);
+        headers.add(value);
+        return this;
+    }
+
+    public SimpleHttpRequest queryParameter(String name, String value) {
+        if (queryParameters.isEmpty()) {
+            queryParameters = new LinkedHashMap<>();
+        }
+        queryParameters.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+        return this;
+    }
+
+    public SimpleHttpRequest body(byte[] body) {
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * the request as it has been received, which is also set to the data other than HTTP
+     */
+    public SimpleHttpRequest text(String text) {
+        this.text = text;
+        return this;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the request target including the query string
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the query string without '?', or null if the target has no query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * @return the first value of the header with the name in any case, or null if there is no such header
+     */
+    public String getHeader(String name) {
+        for (int i = 0; i < headers.size(); i += 2) {
+            if (headers.get(i).equalsIgnoreCase(name)) {
+                return headers.get(i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the values of the headers by the names in any case
+     */
+    public Map<String, List<String>> getHeaders() {
+        Map<String, List<String>> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < headers.size(); i += 2) {
+            map.computeIfAbsent(headers.get(i), k -> new ArrayList<>(1)).add(headers.get(i + 1));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return the first decoded value of the query parameter, or null if there is no such parameter
+     */
+    public String getQueryParameter(String name) {
+        List<String> values = queryParameters.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    public Map<String, List<String>> getQueryParameters() {
+        return Collections.unmodifiableMap(queryParameters);
+    }
+
+    /**
+     * @return the body, whose chunked encoding has been decoded
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getBodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    public String getText() {
+        return text;
+    }
+
     @Override
     public String toString() {
         return "SimpleHttpRequest[" +
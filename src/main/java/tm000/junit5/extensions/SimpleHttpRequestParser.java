@@ -1,20 +1,257 @@
 package tm000.junit5.extensions;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.ByteArrayOutputStream;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Parser of an HTTP/1.x request which reads the bytes of the buffer in place.
+ * The method and the protocol are the constant strings and only the target, the headers and the body are copied.
+ * An instance keeps a scratch array for the direct buffers, so it is used by one thread at a time.
+ */
 public class SimpleHttpRequestParser {
+    private static final String[] METHODS = { "GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS", "TRACE", "CONNECT", "PATCH" };
+    private static final String[] PROTOCOLS = { "HTTP/1.1", "HTTP/1.0" };
+
+    private byte[] scratch = new byte[256];
+
     public SimpleHttpRequest parse(String input) {
-        SimpleHttpRequest req = new SimpleHttpRequest();
-        Pattern pattern = Pattern.compile("(OPTIONS|GET|HEAD|POST|PUT|DELETE|TRACE|CONNECT)\\s([^\\s]+)\\sHTTP/1.1\\b");
-        Matcher matcher = pattern.matcher(input);
-        if (matcher.find()) {
-            req.method(matcher.group(1));
-            req.url(matcher.group(2));
-            req.protocol("HTTP/1.1");
-            return req;
-        } else {
+        return parse(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * parse the request from the position to the limit of the buffer, which is not changed
+     * @return the request, or null if the bytes do not start with a request line
+     */
+    public SimpleHttpRequest parse(ByteBuffer buffer) {
+        int index = buffer.position();
+        int limit = buffer.limit();
+        while (index < limit && isWhitespace(buffer.get(index))) {
+            index++;
+        }
+        String method = match(buffer, index, limit, METHODS);
+        if (method == null) {
+            return null;
+        }
+        index += method.length();
+        if (index >= limit || buffer.get(index) != ' ') {
+            return null;
+        }
+        int targetStart = ++index;
+        int queryStart = -1;
+        for (; index < limit; index++) {
+            byte b = buffer.get(index);
+            if (b == '?' && queryStart < 0) {
+                queryStart = index;
+            } else if (isWhitespace(b)) {
+                break;
+            }
+        }
+        int targetEnd = index;
+        if (targetEnd == targetStart || index >= limit || buffer.get(index) != ' ') {
+            return null;
+        }
+        String protocol = match(buffer, ++index, limit, PROTOCOLS);
+        if (protocol == null) {
             return null;
         }
+        SimpleHttpRequest req = new SimpleHttpRequest()
+            .method(method)
+            .url(string(buffer, targetStart, targetEnd))
+            .protocol(protocol);
+        if (queryStart < 0) {
+            req.path(req.getUrl());
+        } else {
+            req.path(string(buffer, targetStart, queryStart)).query(string(buffer, queryStart + 1, targetEnd));
+            parseQuery(req, buffer, queryStart + 1, targetEnd);
+        }
+        index = nextLine(buffer, index + protocol.length(), limit);
+        // headers
+        while (index < limit) {
+            int lineEnd = lineEnd(buffer, index, limit);
+            if (lineEnd == index) {
+                index = nextLine(buffer, index, limit);
+                break;
+            }
+            int colon = index;
+            while (colon < lineEnd && buffer.get(colon) != ':') {
+                colon++;
+            }
+            if (colon < lineEnd) {
+                int valueStart = colon + 1;
+                int valueEnd = lineEnd;
+                while (valueStart < valueEnd && isWhitespace(buffer.get(valueStart))) {
+                    valueStart++;
+                }
+                while (valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1))) {
+                    valueEnd--;
+                }
+                req.header(string(buffer, index, colon).trim(), string(buffer, valueStart, valueEnd));
+            }
+            index = nextLine(buffer, lineEnd, limit);
+        }
+        // body
+        String transferEncoding = req.getHeader("Transfer-Encoding");
+        if (transferEncoding != null && HttpRequestFramer.isChunked(transferEncoding)) {
+            req.body(parseChunks(buffer, index, limit));
+        } else {
+            String contentLength = req.getHeader("Content-Length");
+            if (contentLength != null) {
+                try {
+                    long length = Long.parseLong(contentLength.trim());
+                    if (length >= 0) {
+                        req.body(bytes(buffer, index, index + (int)Math.min(length, limit - index)));
+                    }
+                } catch (NumberFormatException e) {
+                    // the body is not framed, which the server answers by 400
+                }
+            }
+        }
+        return req;
+    }
+
+    private static void parseQuery(SimpleHttpRequest req, ByteBuffer buffer, int start, int end) {
+        int index = start;
+        while (index < end) {
+            int pairEnd = index;
+            int equals = -1;
+            for (; pairEnd < end && buffer.get(pairEnd) != '&'; pairEnd++) {
+                if (buffer.get(pairEnd) == '=' && equals < 0) {
+                    equals = pairEnd;
+                }
+            }
+            if (pairEnd > index) {
+                if (equals < 0) {
+                    req.queryParameter(decode(buffer, index, pairEnd), "");
+                } else {
+                    req.queryParameter(decode(buffer, index, equals), decode(buffer, equals + 1, pairEnd));
+                }
+            }
+            index = pairEnd + 1;
+        }
+    }
+
+    private static byte[] parseChunks(ByteBuffer buffer, int index, int limit) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (index < limit) {
+            int lineEnd = lineEnd(buffer, index, limit);
+            long size = 0;
+            int digits = 0;
+            for (int i = index; i < lineEnd; i++) {
+                int digit = Character.digit(buffer.get(i), 16);
+                if (digit < 0) {
+                    // the chunk extensions are ignored
+                    break;
+                }
+                size = size * 16 + digit;
+                digits++;
+            }
+            if (digits == 0 || size == 0) {
+                break;
+            }
+            index = nextLine(buffer, lineEnd, limit);
+            int end = (int)Math.min(limit, index + size);
+            for (int i = index; i < end; i++) {
+                body.write(buffer.get(i));
+            }
+            index = nextLine(buffer, lineEnd(buffer, end, limit), limit);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * @return the constant which the bytes start with, or null
+     */
+    private static String match(ByteBuffer buffer, int index, int limit, String[] constants) {
+        for (String constant : constants) {
+            int length = constant.length();
+            if (index + length > limit) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && buffer.get(index + i) == constant.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return constant;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the index of CR or LF which ends the line, or the limit
+     */
+    private static int lineEnd(ByteBuffer buffer, int index, int limit) {
+        while (index < limit && buffer.get(index) != '\r' && buffer.get(index) != '\n') {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @return the index after the line end at the index
+     */
+    private static int nextLine(ByteBuffer buffer, int index, int limit) {
+        index = lineEnd(buffer, index, limit);
+        if (index < limit && buffer.get(index) == '\r') {
+            index++;
+        }
+        if (index < limit && buffer.get(index) == '\n') {
+            index++;
+        }
+        return index;
+    }
+
+    private String string(ByteBuffer buffer, int start, int end) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        copy(buffer, start, end, scratch);
+        return new String(scratch, 0, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @return the decoded value, or the raw value if it has a broken escape such as "100%"
+     */
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = bytes(buffer, start, end);
+        for (byte b : bytes) {
+            if (b == '%' || b == '+') {
+                String raw = new String(bytes, StandardCharsets.ISO_8859_1);
+                try {
+                    return URLDecoder.decode(raw, StandardCharsets.UTF_8);
+                } catch (IllegalArgumentException e) {
+                    return raw;
+                }
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        copy(buffer, start, end, bytes);
+        return bytes;
+    }
+
+    private static void copy(ByteBuffer buffer, int start, int end, byte[] bytes) {
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + start, bytes, 0, end - start);
+        } else {
+            int position = buffer.position();
+            int limit = buffer.limit();
+            buffer.limit(end).position(start);
+            buffer.get(bytes, 0, end - start);
+            buffer.limit(limit).position(position);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
     }
 }
@@ -14,4 +14,48 @@ public @interface SimpleHttpResponse {
     int status() default 200;
     String contentType() default "text/html";
     boolean keepalive() default true;
+    /**
+     * classpath resource which is streamed as the body instead of value
+     */
+    String bodyResource() default "";
+    /**
+     * file which is streamed as the body instead of value
+     */
+    String bodyFile() default "";
+    /**
+     * method of the requests to which this response is returned, any method if empty
+     */
+    String method() default "";
+    /**
+     * path pattern of the requests to which this response is returned, see {@link RequestMatcher}
+     */
+    String path() default "";
+    /**
+     * headers of the requests to which this response is returned, such as "Accept: application/json"
+     */
+    String[] headers() default {};
+    /**
+     * text which the body of the requests contains
+     */
+    String bodyContains() default "";
+    /**
+     * milliseconds before the first byte of the response, 0 for the default of the extension
+     */
+    long delay() default 0;
+    /**
+     * upper bound of the delay, which is uniformly distributed between delay and delayMax if it is greater
+     */
+    long delayMax() default 0;
+    /**
+     * rate at which the response is written, 0 for the default of the extension
+     */
+    long bytesPerSecond() default 0;
+    /**
+     * fault injected in place of the normal response, see {@link ResponseFault}
+     */
+    ResponseFault fault() default ResponseFault.NONE;
+    /**
+     * probability with which the fault is injected into each response
+     */
+    double faultRate() default 1.0;
 }
@@ -1,5 +1,13 @@
 package tm000.junit5.extensions;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 
 import tm000.junit5.extensions.WebServerExtension.Response;
@@ -48,17 +56,70 @@ public class SimpleHttpResponseCreator {
         Map.entry(504, "Gateway Timeout"),
         Map.entry(505, "HTTP Version Not Supported"));
 
+    /**
+     * the status line and the headers are encoded apart from the body to be written with a gathering write.
+     * The body of bodyResource or bodyFile is not loaded and is streamed from the file on each request.
+     */
     public static Response create(SimpleHttpResponse res) {
-        return new Response(String.format("HTTP/1.1 %s %s\r\n" +
-                                "Content-Length: %d\r\n" +
-                                "Connection: %s\r\n" +
-                                "Content-Type: %s\r\n\r\n" + 
-                                "%s", 
-                                res.status(), STATUS_CODE.get(res.status()),
-                                res.value().getBytes().length,
-                                res.keepalive() ? "keep-alive" : "close",
-                                res.contentType(),
-                                res.value()),
-                            res.keepalive());
+        return create(res.status(), res.contentType(), res.value(), getBodyFile(res), res.keepalive())
+                .behave(ResponseBehavior.of(res));
+    }
+
+    public static Response create(int status, String contentType, String value) {
+        return create(status, contentType, value, null, true);
+    }
+
+    static Response create(int status, String contentType, String value, boolean keepalive) {
+        return create(status, contentType, value, null, keepalive);
+    }
+
+    private static Response create(int status, String contentType, String value, Path file, boolean keepalive) {
+        byte[] body = file == null ? value.getBytes() : new byte[0];
+        long length;
+        try {
+            length = file == null ? body.length : Files.size(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("the body file is not readable: " + file, e);
+        }
+        String header = new StringBuilder()
+                .append("HTTP/1.1 ").append(status).append(' ').append(STATUS_CODE.get(status)).append("\r\n")
+                .append("Content-Length: ").append(length).append("\r\n")
+                .append("Connection: ").append(keepalive ? "keep-alive" : "close").append("\r\n")
+                .append("Content-Type: ").append(contentType).append("\r\n\r\n")
+                .toString();
+        if (file != null) {
+            return new Response(header + "[" + file + "]", keepalive, file, length, Response.encode(header.getBytes()));
+        }
+        return new Response(header + value, keepalive,
+                            Response.encode(header.getBytes()), Response.encode(body));
+    }
+
+    /**
+     * a resource in a jar is copied to a temporary file once
+     */
+    private static Path getBodyFile(SimpleHttpResponse res) {
+        if (!res.bodyFile().isEmpty()) {
+            return Paths.get(res.bodyFile());
+        }
+        if (res.bodyResource().isEmpty()) {
+            return null;
+        }
+        URL url = SimpleHttpResponseCreator.class.getClassLoader().getResource(res.bodyResource());
+        if (url == null) {
+            throw new IllegalArgumentException("the body resource is not found: " + res.bodyResource());
+        }
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return Paths.get(url.toURI());
+            }
+            Path file = Files.createTempFile("body", null);
+            file.toFile().deleteOnExit();
+            try (InputStream in = url.openStream()) {
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return file;
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalArgumentException("the body resource is not readable: " + res.bodyResource(), e);
+        }
     }
 }
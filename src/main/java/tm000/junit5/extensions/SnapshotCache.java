@@ -0,0 +1,143 @@
+package tm000.junit5.extensions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Snapshots of the database state prepared by {@link ExecuteSql} and {@link LoadData}, keyed by a hash of the annotations
+ * and their resources.
+ * A snapshot is the script generated by {@link DatabaseResetStrategy#script(Connection)} and kept in memory until the end of the run.
+ */
+class SnapshotCache implements ExtensionContext.Store.CloseableResource {
+    private final Map<String, List<String>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * hash of the ordered @ExecuteSql and @LoadData annotations and the contents of their resources,
+     * so a resource edited between runs of a long-lived JVM does not restore a stale snapshot
+     */
+    static String key(List<? extends Annotation> execSqls) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Annotation ann : execSqls) {
+                digest.update(ann.toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                if (ann instanceof ExecuteSql) {
+                    digestResource(digest, ((ExecuteSql) ann).resource());
+                } else if (ann instanceof LoadData) {
+                    digestResource(digest, ((LoadData) ann).resource());
+                }
+            }
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void digestResource(MessageDigest digest, String resource) {
+        if (resource.isEmpty()) {
+            return;
+        }
+        // a missing resource is reported when the annotation is executed
+        try (InputStream in = SnapshotCache.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                return;
+            }
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+            digest.update((byte) 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to read resource : " + resource, e);
+        }
+    }
+
+    boolean contains(String key) {
+        return snapshots.containsKey(key);
+    }
+
+    /**
+     * restore the snapshot into the empty database
+     * @return false if no snapshot has been captured for the key
+     */
+    boolean restore(Connection con, String key) throws SQLException {
+        List<String> script = snapshots.get(key);
+        if (script == null) {
+            return false;
+        }
+        try (Statement statement = con.createStatement()) {
+            for (String sql : script) {
+                statement.addBatch(sql);
+            }
+            statement.executeBatch();
+        }
+        return true;
+    }
+
+    /**
+     * INSERT statements of the tables in the snapshot, in the order of the script
+     * @return null if no snapshot has been captured for the key
+     */
+    List<String> getTableData(String key, Collection<String> tables) {
+        List<String> script = snapshots.get(key);
+        if (script == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        for (String table : tables) {
+            names.add("\".\"" + table.replace("\"", "\"\"") + "\"");
+        }
+        List<String> inserts = new ArrayList<>();
+        for (String sql : script) {
+            if (sql.startsWith("INSERT INTO \"")) {
+                for (String name : names) {
+                    int end = sql.indexOf(name);
+                    int next = end + name.length();
+                    if (end > 0 && next < sql.length() && (sql.charAt(next) == '(' || Character.isWhitespace(sql.charAt(next)))) {
+                        inserts.add(sql);
+                        break;
+                    }
+                }
+            }
+        }
+        return inserts;
+    }
+
+    /**
+     * capture the current database state
+     * @return false if the database does not support snapshots
+     */
+    boolean capture(Connection con, String key, DatabaseResetStrategy strategy) throws SQLException {
+        List<String> script = strategy == null ? null : strategy.script(con);
+        if (script == null) {
+            return false;
+        }
+        snapshots.putIfAbsent(key, script);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        snapshots.clear();
+    }
+}
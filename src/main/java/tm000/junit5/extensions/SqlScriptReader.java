@@ -0,0 +1,150 @@
+package tm000.junit5.extensions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads SQL statements one by one from a script.
+ * Statements may span multiple lines and end with the delimiter.
+ * Line comments (--) and block comments are skipped, and the delimiter is ignored in
+ * single quoted strings, double quoted identifiers and $$ quoted strings.
+ * Only the current statement is held in memory.
+ */
+class SqlScriptReader implements Closeable {
+    private final Reader reader;
+    private final String delimiter;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    SqlScriptReader(Reader reader, String delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter == null || delimiter.isEmpty() ? ";" : delimiter;
+    }
+
+    /**
+     * read the next statement
+     * @return the statement without the delimiter, or null at the end of the script
+     */
+    String nextStatement() throws IOException {
+        StringBuilder sql = new StringBuilder();
+        int c;
+        while ((c = read()) != -1) {
+            char ch = (char) c;
+            if (ch == '\'' || ch == '"') {
+                sql.append(ch);
+                readQuoted(sql, ch);
+            } else if (ch == '$' && peek() == '$') {
+                sql.append(ch).append((char) read());
+                readDollarQuoted(sql);
+            } else if (ch == '-' && peek() == '-') {
+                skipLine();
+                sql.append('\n');
+            } else if (ch == '/' && peek() == '*') {
+                read();
+                skipBlockComment();
+                sql.append(' ');
+            } else if (ch == delimiter.charAt(0) && matchDelimiter()) {
+                String statement = sql.toString().trim();
+                if (!statement.isEmpty()) {
+                    return statement;
+                }
+                sql.setLength(0);
+            } else {
+                sql.append(ch);
+            }
+        }
+        String statement = sql.toString().trim();
+        return statement.isEmpty() ? null : statement;
+    }
+
+    private void readQuoted(StringBuilder sql, char quote) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            sql.append((char) c);
+            if (c == quote) {
+                if (peek() == quote) {
+                    // escaped quote
+                    sql.append((char) read());
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void readDollarQuoted(StringBuilder sql) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            sql.append((char) c);
+            if (c == '$' && peek() == '$') {
+                sql.append((char) read());
+                return;
+            }
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != '\n') {
+        }
+    }
+
+    private void skipBlockComment() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '*' && peek() == '/') {
+                read();
+                return;
+            }
+        }
+    }
+
+    /**
+     * consume the rest of the delimiter if the following characters match it
+     */
+    private boolean matchDelimiter() throws IOException {
+        for (int i = 1; i < delimiter.length(); i++) {
+            if (!fill(i) || buffer[pos + i - 1] != delimiter.charAt(i)) {
+                return false;
+            }
+        }
+        pos += delimiter.length() - 1;
+        return true;
+    }
+
+    private int read() throws IOException {
+        return fill(1) ? buffer[pos++] : -1;
+    }
+
+    private int peek() throws IOException {
+        return fill(1) ? buffer[pos] : -1;
+    }
+
+    /**
+     * make sure that n characters are available in the buffer
+     */
+    private boolean fill(int n) throws IOException {
+        while (limit - pos < n && !eof) {
+            if (pos > 0) {
+                System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            }
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+        return limit - pos >= n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
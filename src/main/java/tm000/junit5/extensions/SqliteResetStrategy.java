@@ -0,0 +1,62 @@
+package tm000.junit5.extensions;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SQLite: drops the views and the tables listed in sqlite_master.
+ * The foreign keys are deferred to the commit because PRAGMA foreign_keys has no effect in a transaction,
+ * and DELETE without WHERE clause is truncated by SQLite.
+ */
+public class SqliteResetStrategy implements DatabaseResetStrategy {
+
+    @Override
+    public boolean supports(DatabaseMetaData metaData) throws SQLException {
+        return "SQLite".equals(metaData.getDatabaseProductName());
+    }
+
+    @Override
+    public void reset(Connection con) throws SQLException {
+        List<String> drops = new ArrayList<>();
+        try (Statement statement = con.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT type, name FROM sqlite_master WHERE type IN ('view', 'table') AND name NOT LIKE 'sqlite_%' ORDER BY type DESC")) {
+            while (rs.next()) {
+                drops.add("DROP " + rs.getString(1).toUpperCase(Locale.ROOT) + " " + quote(rs.getString(2)));
+            }
+        }
+        try (Statement statement = con.createStatement()) {
+            statement.addBatch("PRAGMA defer_foreign_keys = ON");
+            for (String sql : drops) {
+                statement.addBatch(sql);
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @Override
+    public void truncate(Connection con, Collection<String> tables) throws SQLException {
+        boolean sequence;
+        try (Statement statement = con.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT 1 FROM sqlite_master WHERE name = 'sqlite_sequence'")) {
+            sequence = rs.next();
+        }
+        try (Statement statement = con.createStatement()) {
+            statement.addBatch("PRAGMA defer_foreign_keys = ON");
+            for (String table : tables) {
+                statement.addBatch("DELETE FROM " + quote(table));
+                if (sequence) {
+                    // restart AUTOINCREMENT
+                    statement.addBatch("DELETE FROM sqlite_sequence WHERE name = '" + table.replace("'", "''") + "'");
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+}
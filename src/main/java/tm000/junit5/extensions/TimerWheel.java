@@ -0,0 +1,103 @@
+package tm000.junit5.extensions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed wheel of the timers of a selector thread, which is advanced by its select loop.
+ * A timer is put in the bucket of its tick and the ones due in the later rounds of the wheel are skipped,
+ * so scheduling and expiring a timer take a constant time and the delayed responses do not block each other.
+ * It is not thread-safe and is used only by the thread which owns the selector.
+ */
+class TimerWheel {
+    private final long tickNanos;
+    private final ArrayDeque<Timer>[] buckets;
+    private final int mask;
+    private final long start = System.nanoTime();
+    // the next tick to be expired
+    private long tick;
+    private int size;
+    private final List<Runnable> expired = new ArrayList<>();
+
+    /**
+     * @param wheelSize the number of the buckets, which is rounded up to a power of two
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    TimerWheel(long tickMillis, int wheelSize) {
+        this.tickNanos = tickMillis * 1_000_000;
+        int length = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.buckets = new ArrayDeque[length];
+        for (int i = 0; i < length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = length - 1;
+    }
+
+    /**
+     * run the task on the first tick after the delay
+     */
+    void schedule(long delayNanos, Runnable task) {
+        long elapsed = System.nanoTime() - start;
+        if (size == 0) {
+            tick = elapsed / tickNanos;
+        }
+        long due = Math.max(tick, (elapsed + Math.max(0, delayNanos) + tickNanos - 1) / tickNanos);
+        buckets[(int)(due & mask)].add(new Timer(due, task));
+        size++;
+    }
+
+    /**
+     * run the tasks which are due, the tasks may schedule the next timers
+     */
+    void expire() {
+        if (size == 0) {
+            return;
+        }
+        long now = (System.nanoTime() - start) / tickNanos;
+        for (; tick <= now && size > 0; tick++) {
+            Iterator<Timer> it = buckets[(int)(tick & mask)].iterator();
+            while (it.hasNext()) {
+                Timer timer = it.next();
+                if (timer.due <= tick) {
+                    it.remove();
+                    size--;
+                    expired.add(timer.task);
+                }
+            }
+        }
+        try {
+            for (Runnable task : expired) {
+                task.run();
+            }
+        } finally {
+            expired.clear();
+        }
+    }
+
+    /**
+     * @return the milliseconds for which the selector may wait until the next tick, or 0 without timers
+     */
+    long timeoutMillis() {
+        if (size == 0) {
+            return 0;
+        }
+        long remaining = start + tick * tickNanos - System.nanoTime();
+        return Math.max(1, (remaining + 999_999) / 1_000_000);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static class Timer {
+        final long due;
+        final Runnable task;
+
+        Timer(long due, Runnable task) {
+            this.due = due;
+            this.task = task;
+        }
+    }
+}
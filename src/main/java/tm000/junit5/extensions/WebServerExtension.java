@@ -2,22 +2,53 @@ package tm000.junit5.extensions;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.KeyStore;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.net.ssl.KeyManagerFactory;
@@ -25,18 +56,36 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
 
 import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
 import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+import org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
 import org.junit.platform.commons.logging.Logger;
 import org.junit.platform.commons.logging.LoggerFactory;
 
-public class WebServerExtension implements BeforeTestExecutionCallback, BeforeAllCallback, AfterAllCallback {
+public class WebServerExtension implements BeforeTestExecutionCallback, BeforeEachCallback, AfterEachCallback, BeforeAllCallback, AfterAllCallback, ParameterResolver {
+    private static final Namespace NAMESPACE = Namespace.create(WebServerExtension.class);
+
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+    private static final Response NOT_FOUND = SimpleHttpResponseCreator.create(404, "text/plain", "Not Found");
+    // the answer to a request which can not be framed, after which the connection is closed
+    private static final Response BAD_REQUEST = SimpleHttpResponseCreator.create(400, "text/plain", "Bad Request", false);
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private int port;
@@ -44,55 +93,429 @@ public class WebServerExtension implements BeforeTestExecutionCallback, BeforeAl
     private String keyStoreFile;
     private String trustStoreFile;
     private String password;
+    private String[] protocols;
+    private int sessionCacheSize;
+    private int sessionTimeout;
+    private int workerThreads;
+    private boolean virtualThreads;
+    private RequestRetention retention;
+    private int journalCapacity;
+    private int sampleInterval;
+
+    private boolean shared;
+    private long shutdownTimeout;
+    private ResponseBehavior responseBehavior;
 
     private TestHttpServer testServer;
+    private TestScope scope;
+    private volatile boolean inTest;
+    // the metrics of the server when the test class has started
+    private ServerMetrics baseline;
+
+    /**
+     * @return the port which the server is bound to, which is chosen by the system for port(0)
+     */
+    public int getPort() {
+        return this.testServer.boundPort;
+    }
+
+    /**
+     * @return the URI of the server, which includes the path prefix of the test class on a shared server.
+     *         The paths of the requests are appended to it, e.g. getBaseUri() + "/api/users".
+     */
+    public URI getBaseUri() {
+        return URI.create((enableSecurity ? "https" : "http") + "://localhost:" + getPort() + scope.prefix);
+    }
 
+    /**
+     * @return the texts of the requests kept by the journal of the current test
+     */
     public List<String> getRequests() {
-        return this.testServer.requests;
+        return getHttpRequests().stream().map(SimpleHttpRequest::getText).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the parsed requests kept by the journal, in which the data other than HTTP has only the text
+     */
+    public List<SimpleHttpRequest> getHttpRequests() {
+        return this.scope.journal.getRequests();
+    }
+
+    /**
+     * @return the journal of the requests received during the current test
+     */
+    public RequestJournal getJournal() {
+        return this.scope.journal;
+    }
+
+    /**
+     * add a stub response for the requests which match.
+     * The stubs added in a test or a @BeforeEach method are removed after the test,
+     * and the ones added in a @BeforeAll method are kept for the test class.
+     */
+    public Stubbing when(RequestMatcher matcher) {
+        return new Stubbing(matcher);
+    }
+
+    public AllocationMetrics getAllocationMetrics() {
+        return this.testServer.allocationMetrics();
+    }
+
+    /**
+     * @return the throughput, the latency and the connections of the server since the test class has started,
+     *         which include the requests of the other classes on a shared server.
+     *         The metrics of a test are taken by {@link ServerMetrics#since(ServerMetrics)} of the ones before it.
+     */
+    public ServerMetrics metrics() {
+        return this.testServer.metrics.snapshot().since(this.baseline);
     }
  
     @Override
     public void beforeAll(ExtensionContext context) throws Exception {
-        this.testServer = new TestHttpServer();
-        Thread thread = new Thread(testServer);
-        thread.start();
-        while (!this.testServer.isReady.get()) {
-            Thread.sleep(50);
+        if (shared) {
+            Map<String, Object> configuration = serverConfiguration();
+            // a fixed port is bound by one server, and the ephemeral ports are shared by the same configuration
+            Object key = port == 0 ? List.of(SharedServer.class, configuration) : List.of(SharedServer.class, port);
+            SharedServer sharedServer = context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(
+                key, k -> new SharedServer(startServer(context), configuration), SharedServer.class);
+            if (!sharedServer.configuration.equals(configuration)) {
+                List<String> different = configuration.keySet().stream()
+                    .filter(name -> !Objects.equals(configuration.get(name), sharedServer.configuration.get(name)))
+                    .collect(Collectors.toList());
+                throw new ExtensionConfigurationException("the server shared on port " + port + " has been started by another class with the different " + different);
+            }
+            this.testServer = sharedServer.server;
+            this.scope = this.testServer.addScope(context.getRequiredTestClass().getSimpleName(), retention, journalCapacity, sampleInterval, responseBehavior);
+        } else {
+            this.testServer = startServer(context);
+            this.scope = this.testServer.defaultScope;
+        }
+        this.baseline = this.testServer.metrics.snapshot();
+    }
+
+    /**
+     * the settings of the server shared by the test classes.
+     * The journal and the response behavior are the settings of the scope of each class.
+     */
+    private Map<String, Object> serverConfiguration() {
+        Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("enableSecurity", enableSecurity);
+        if (enableSecurity) {
+            configuration.put("keyStoreFile", Paths.get(keyStoreFile).toAbsolutePath().normalize());
+            configuration.put("trustStoreFile", Paths.get(trustStoreFile).toAbsolutePath().normalize());
+            configuration.put("password", password);
+            configuration.put("protocols", List.of(protocols));
+            configuration.put("sessionCacheSize", sessionCacheSize);
+            configuration.put("sessionTimeout", sessionTimeout);
+        }
+        configuration.put("workerThreads", workerThreads);
+        configuration.put("virtualThreads", virtualThreads);
+        configuration.put("shutdownTimeout", shutdownTimeout);
+        return configuration;
+    }
+
+    private TestHttpServer startServer(ExtensionContext context) {
+        TestHttpServer server = new TestHttpServer();
+        try {
+            if (enableSecurity) {
+                server.sslContext = getSslContext(context);
+            }
+            server.acceptorThread = new Thread(server, "TestHttpServer-acceptor");
+            server.acceptorThread.start();
+            // completed when the socket is bound, or with the failure of the server thread
+            server.started.get(30, TimeUnit.SECONDS);
+            logger.info(() -> "Test Server has started on port " + server.boundPort);
+            return server;
+        } catch (ExecutionException e) {
+            server.close();
+            throw new IllegalStateException("Test Server has failed to start on port " + port, e.getCause());
+        } catch (Exception e) {
+            server.close();
+            throw new IllegalStateException("Test Server has failed to start on port " + port, e);
+        }
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        Class<?> type = parameterContext.getParameter().getType();
+        return type == URI.class || type == InetSocketAddress.class;
+    }
+
+    /**
+     * resolve the base URI or the address of the server
+     */
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        if (parameterContext.getParameter().getType() == URI.class) {
+            return getBaseUri();
+        }
+        return new InetSocketAddress("localhost", getPort());
+    }
+
+    /**
+     * get the SSLContext of the key store, which is loaded once and shared in the root store by the test classes.
+     * The sessions cached by the context are resumed by the clients which connect again.
+     */
+    @SuppressWarnings("unchecked")
+    private SSLContext getSslContext(ExtensionContext context) throws Exception {
+        Map<List<Object>, SSLContext> cache = context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(SSLContext.class, key -> new ConcurrentHashMap<List<Object>, SSLContext>(), Map.class);
+        List<Object> key = List.of(Paths.get(keyStoreFile).toAbsolutePath().normalize(), Paths.get(trustStoreFile).toAbsolutePath().normalize(),
+                                   password, sessionCacheSize, sessionTimeout);
+        synchronized (cache) {
+            SSLContext sslContext = cache.get(key);
+            if (sslContext == null) {
+                sslContext = createSslContext();
+                cache.put(key, sslContext);
+            }
+            return sslContext;
+        }
+    }
+
+    private SSLContext createSslContext() throws Exception {
+        KeyStore ks = KeyStore.getInstance("JKS");
+        KeyStore ts = KeyStore.getInstance("JKS");
+        char[] passphrase = password.toCharArray();
+
+        try (InputStream in = new FileInputStream(keyStoreFile)) {
+            ks.load(in, passphrase);
+        }
+        try (InputStream in = new FileInputStream(trustStoreFile)) {
+            ts.load(in, passphrase);
         }
-        logger.info(() -> "Test Server has started!");
+
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
+        kmf.init(ks, passphrase);
+
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
+        tmf.init(ts);
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+        SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+        sessionContext.setSessionCacheSize(sessionCacheSize);
+        sessionContext.setSessionTimeout(sessionTimeout);
+        return sslContext;
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws Exception {
+        this.inTest = true;
     }
 
     @Override
     public void beforeTestExecution(ExtensionContext context) throws Exception {
+        this.scope.reset(getResponses(context));
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws Exception {
+        this.inTest = false;
+        this.scope.testStubs = new ResponseRouter();
+    }
+
+    /**
+     * get the responses of the test method, which are created once per method and kept in the class-level store.
+     * The encoded responses are shared in the root store by the tests which declare the same annotations.
+     */
+    @SuppressWarnings("unchecked")
+    private TestResponses getResponses(ExtensionContext context) {
+        ExtensionContext classContext = context;
+        while (classContext.getTestMethod().isPresent() && classContext.getParent().isPresent()) {
+            classContext = classContext.getParent().get();
+        }
+        Map<Method, TestResponses> cache = classContext.getStore(NAMESPACE).getOrComputeIfAbsent(Response.class, key -> new ConcurrentHashMap<Method, TestResponses>(), Map.class);
+        Map<Annotation, Response> encoded = context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(Annotation.class, key -> new ConcurrentHashMap<Annotation, Response>(), Map.class);
+        return cache.computeIfAbsent(context.getRequiredTestMethod(), method -> createResponses(method, encoded));
+    }
+
+    /**
+     * the responses with the routing attributes are added to the router and the others are returned in order
+     */
+    private static TestResponses createResponses(Method method, Map<Annotation, Response> encoded) {
         List<Response> responses = new ArrayList<>();
-        Annotation[] annotations = context.getTestMethod().get().getAnnotations();
+        ResponseRouter router = new ResponseRouter();
+        Annotation[] annotations = method.getAnnotations();
         Stream.of(annotations).filter(anno -> anno instanceof WebServerResponse | anno instanceof WebServerResponses |
                                     anno instanceof SimpleHttpResponse | anno instanceof SimpleHttpResponses)
             .forEach(anno -> {
                 if (anno instanceof WebServerResponses) {
                     WebServerResponses wsrs = (WebServerResponses)anno;
-                    Arrays.asList(wsrs.value()).forEach(wsr -> Collections.addAll(responses, new Response(wsr.value(), wsr.keepalive())));
+                    Arrays.asList(wsrs.value()).forEach(wsr -> responses.add(encoded.computeIfAbsent(wsr, key -> new Response(wsr.value(), wsr.keepalive()))));
                 } else if (anno instanceof WebServerResponse) {
                     WebServerResponse wsr = (WebServerResponse)anno;
-                    Collections.addAll(responses, new Response(wsr.value(), wsr.keepalive()));
+                    responses.add(encoded.computeIfAbsent(wsr, key -> new Response(wsr.value(), wsr.keepalive())));
                 } else if (anno instanceof SimpleHttpResponses) {
                     SimpleHttpResponses shrs = (SimpleHttpResponses)anno;
-                    Arrays.asList(shrs.value()).forEach(shr -> responses.add(SimpleHttpResponseCreator.create(shr)));
+                    Arrays.asList(shrs.value()).forEach(shr -> addResponse(shr, encoded, responses, router));
                 } else if (anno instanceof SimpleHttpResponse) {
-                    Collections.addAll(responses, SimpleHttpResponseCreator.create((SimpleHttpResponse)anno));
+                    addResponse((SimpleHttpResponse)anno, encoded, responses, router);
                 }
             });
-        this.testServer.reset();
-        this.testServer.responses.addAll(responses);
+        return new TestResponses(Collections.unmodifiableList(responses), router);
+    }
+
+    private static void addResponse(SimpleHttpResponse shr, Map<Annotation, Response> encoded, List<Response> responses, ResponseRouter router) {
+        Response response = encoded.computeIfAbsent(shr, key -> SimpleHttpResponseCreator.create(shr));
+        RequestMatcher matcher = RequestMatcher.of(shr);
+        if (matcher == null) {
+            responses.add(response);
+        } else {
+            router.add(matcher, response);
+        }
     }
 
     @Override
     public void afterAll(ExtensionContext context) throws Exception {
-        if (this.testServer != null) {
+        if (this.testServer != null && context != null) {
+            context.publishReportEntry(metrics().toReportEntry());
+        }
+        if (shared) {
+            // the server is closed with the root store, and the scope is null if beforeAll has failed
+            if (this.testServer != null && this.scope != null) {
+                this.testServer.scopes.remove(this.scope.prefix.substring(1));
+            }
+        } else if (this.testServer != null) {
             this.testServer.close();
         }
     }
 
+    /**
+     * Stub response being added for the requests which match
+     */
+    public class Stubbing {
+        private final RequestMatcher matcher;
+
+        Stubbing(RequestMatcher matcher) {
+            this.matcher = matcher;
+        }
+
+        public void respond(String body) {
+            respond(200, "text/plain", body);
+        }
+
+        public void respond(int status, String contentType, String body) {
+            Response response = SimpleHttpResponseCreator.create(status, contentType, body);
+            (inTest ? scope.testStubs : scope.classStubs).add(matcher, response);
+        }
+    }
+
+    /**
+     * Responses, stubs and journal of the tests of a class, which are isolated from the other classes sharing the server
+     */
+    static class TestScope {
+        // the path prefix of the scope on a shared server, or empty
+        final String prefix;
+        final RequestRetention retention;
+        final int journalCapacity;
+        final int sampleInterval;
+        // the behavior of the responses which do not set their own
+        final ResponseBehavior defaults;
+        volatile RequestJournal journal;
+        volatile TestResponses responses = TestResponses.NONE;
+        volatile ResponseRouter testStubs = new ResponseRouter();
+        final ResponseRouter classStubs = new ResponseRouter();
+        final AtomicInteger requestCount = new AtomicInteger();
+
+        TestScope(String prefix, RequestRetention retention, int journalCapacity, int sampleInterval, ResponseBehavior defaults) {
+            this.prefix = prefix;
+            this.retention = retention;
+            this.journalCapacity = journalCapacity;
+            this.sampleInterval = sampleInterval;
+            this.defaults = defaults;
+            this.journal = newJournal();
+        }
+
+        void reset(TestResponses responses) {
+            journal = newJournal();
+            requestCount.set(0);
+            this.responses = responses;
+        }
+
+        RequestJournal newJournal() {
+            return new RequestJournal(retention, journalCapacity, sampleInterval);
+        }
+
+        /**
+         * the response of the first route which matches the request: the stubs added in the test,
+         * the annotations of the test and the stubs added for the class.
+         * The other requests are answered by the responses without a route in order, and the last one is repeated.
+         */
+        Response nextResponse(SimpleHttpRequest request) {
+            return route(request).withDefaults(defaults);
+        }
+
+        private Response route(SimpleHttpRequest request) {
+            Response response = testStubs.route(request);
+            if (response == null) {
+                response = responses.router.route(request);
+            }
+            if (response == null) {
+                response = classStubs.route(request);
+            }
+            if (response != null) {
+                return response;
+            }
+            List<Response> list = responses.sequence;
+            if (list.isEmpty()) {
+                return NOT_FOUND;
+            }
+            int count = requestCount.getAndIncrement();
+            return list.get(Math.min(count, list.size() - 1));
+        }
+    }
+
+    /**
+     * Test Http Server shared by the test classes, which is closed with the root store
+     */
+    static class SharedServer implements CloseableResource {
+        final TestHttpServer server;
+        // the settings of the class which has started the server
+        final Map<String, Object> configuration;
+
+        SharedServer(TestHttpServer server, Map<String, Object> configuration) {
+            this.server = server;
+            this.configuration = configuration;
+        }
+
+        @Override
+        public void close() {
+            server.close();
+        }
+    }
+
+    /**
+     * Responses declared by the annotations of a test method
+     */
+    static class TestResponses {
+        static final TestResponses NONE = new TestResponses(List.of(), new ResponseRouter());
+
+        // returned in order to the requests which no route matches, and the last one is repeated
+        final List<Response> sequence;
+        final ResponseRouter router;
+
+        TestResponses(List<Response> sequence, ResponseRouter router) {
+            this.sequence = sequence;
+            this.router = router;
+        }
+    }
+
+    /**
+     * Thread.ofVirtual().factory() looked up by reflection so that the extension still runs on Java 11,
+     * or a factory of daemon platform threads if virtual threads are not available.
+     */
+    static ThreadFactory connectionThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
     /**
      * WebServerExtension Builder
      * @return
@@ -107,6 +530,21 @@ public class WebServerExtension implements BeforeTestExecutionCallback, BeforeAl
         private String keyStoreFile;
         private String trustStoreFile;
         private String password;
+        private String[] protocols = { "TLSv1.3", "TLSv1.2" };
+        private int sessionCacheSize = 20480;
+        private int sessionTimeout = 86400;
+        private int workerThreads = 1;
+        private boolean virtualThreads;
+        private RequestRetention retention = RequestRetention.RING;
+        private int journalCapacity = 10000;
+        private int sampleInterval = 100;
+        private boolean shared;
+        private long shutdownTimeout = 5000;
+        private long delay;
+        private long delayMax;
+        private long bytesPerSecond;
+        private ResponseFault fault = ResponseFault.NONE;
+        private double faultRate = 1.0;
 
         public WebServerExtensionBuilder port(int port) {
             this.port = port;
@@ -133,6 +571,136 @@ public class WebServerExtension implements BeforeTestExecutionCallback, BeforeAl
             return this;
         }
 
+        /**
+         * TLS protocols which the server accepts, TLSv1.3 and TLSv1.2 by default
+         */
+        public WebServerExtensionBuilder protocols(String... protocols) {
+            this.protocols = protocols;
+            return this;
+        }
+
+        /**
+         * number of the TLS sessions cached for resumption, 0 means no limit
+         */
+        public WebServerExtensionBuilder sessionCacheSize(int sessionCacheSize) {
+            this.sessionCacheSize = sessionCacheSize;
+            return this;
+        }
+
+        /**
+         * seconds for which a cached TLS session can be resumed, 0 means no limit
+         */
+        public WebServerExtensionBuilder sessionTimeout(int sessionTimeout) {
+            this.sessionTimeout = sessionTimeout;
+            return this;
+        }
+
+        /**
+         * number of the selector threads which the connections are distributed across
+         */
+        public WebServerExtensionBuilder workerThreads(int workerThreads) {
+            if (workerThreads < 1) {
+                throw new IllegalArgumentException("workerThreads must be greater than 0");
+            }
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        /**
+         * serve each connection on its own thread with blocking I/O instead of the selectors.
+         * Virtual threads are used on Java 21 or later and platform threads on the older runtimes.
+         */
+        public WebServerExtensionBuilder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * which requests the journal keeps, the latest ones by default
+         */
+        public WebServerExtensionBuilder retention(RequestRetention retention) {
+            this.retention = retention;
+            return this;
+        }
+
+        /**
+         * number of the requests kept by the journal
+         */
+        public WebServerExtensionBuilder journalCapacity(int journalCapacity) {
+            if (journalCapacity < 1) {
+                throw new IllegalArgumentException("journalCapacity must be greater than 0");
+            }
+            this.journalCapacity = journalCapacity;
+            return this;
+        }
+
+        /**
+         * keep every n-th request in {@link RequestRetention#SAMPLED}
+         */
+        public WebServerExtensionBuilder sampleInterval(int sampleInterval) {
+            if (sampleInterval < 1) {
+                throw new IllegalArgumentException("sampleInterval must be greater than 0");
+            }
+            this.sampleInterval = sampleInterval;
+            return this;
+        }
+
+        /**
+         * share one server among the test classes with the same port and security settings.
+         * The requests are routed to a class by the first segment of the path, which {@link WebServerExtension#getBaseUri()} includes.
+         */
+        public WebServerExtensionBuilder shared(boolean shared) {
+            this.shared = shared;
+            return this;
+        }
+
+        /**
+         * milliseconds for which the responses in progress are written after the tests before the connections are closed
+         */
+        public WebServerExtensionBuilder shutdownTimeout(long shutdownTimeout) {
+            this.shutdownTimeout = shutdownTimeout;
+            return this;
+        }
+
+        /**
+         * milliseconds before the first byte of the responses which do not set their own delay
+         */
+        public WebServerExtensionBuilder delay(long delay) {
+            return delay(delay, delay);
+        }
+
+        /**
+         * delay uniformly distributed between min and max milliseconds
+         */
+        public WebServerExtensionBuilder delay(long min, long max) {
+            if (min < 0 || max < min) {
+                throw new IllegalArgumentException("delay must be 0 <= min <= max: " + min + ", " + max);
+            }
+            this.delay = min;
+            this.delayMax = max;
+            return this;
+        }
+
+        /**
+         * rate at which the responses which do not set their own are written, 0 means no limit
+         */
+        public WebServerExtensionBuilder bytesPerSecond(long bytesPerSecond) {
+            if (bytesPerSecond < 0) {
+                throw new IllegalArgumentException("bytesPerSecond must not be negative");
+            }
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * fault injected with the probability into the responses which do not set their own
+         */
+        public WebServerExtensionBuilder fault(ResponseFault fault, double rate) {
+            this.fault = fault;
+            this.faultRate = rate;
+            return this;
+        }
+
         public WebServerExtension build() {
             if (this.enableSecurity) {
                 assertNotNull(this.keyStoreFile);
@@ -145,334 +713,1291 @@ public class WebServerExtension implements BeforeTestExecutionCallback, BeforeAl
             wse.keyStoreFile = this.keyStoreFile;
             wse.trustStoreFile = this.trustStoreFile;
             wse.password = this.password;
+            wse.protocols = this.protocols;
+            wse.sessionCacheSize = this.sessionCacheSize;
+            wse.sessionTimeout = this.sessionTimeout;
+            wse.workerThreads = this.workerThreads;
+            wse.virtualThreads = this.virtualThreads;
+            wse.retention = this.retention;
+            wse.journalCapacity = this.journalCapacity;
+            wse.sampleInterval = this.sampleInterval;
+            wse.shared = this.shared;
+            wse.shutdownTimeout = this.shutdownTimeout;
+            wse.responseBehavior = new ResponseBehavior(delay, delayMax, bytesPerSecond, fault, faultRate);
             return wse;
         }
     }
 
     /**
      * Test Http Server
+     * One acceptor thread accepts the connections and distributes them across the worker threads,
+     * each of which has its own selector for the handshake, read and write of its connections.
      */
     class TestHttpServer implements Runnable, AutoCloseable {
         final int BUFFER_SIZE = 16384;
+        // the resolution of the delays and of the write rate
+        final long TIMER_TICK_MILLIS = 5;
 
-        List<String> requests = new ArrayList<>();
-        List<Response> responses = new ArrayList<>();
+        final TestScope defaultScope = new TestScope("", retention, journalCapacity, sampleInterval, responseBehavior);
+        // the scopes of the classes sharing the server by the first segment of the path
+        final Map<String, TestScope> scopes = new ConcurrentHashMap<>();
+        volatile int boundPort;
         ServerSocketChannel serverSocket;
         Selector selector;
-        boolean isClosing;
-        volatile AtomicBoolean isReady = new AtomicBoolean(false);
-        int requestCount;
-        int appBufferMax;
-        int netBufferMax;
+        SSLContext sslContext;
+        ExecutorService handshakeExecutor;
+        Worker[] workers;
+        Thread[] workerThreadList;
+        ServerSocket blockingServerSocket;
+        final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+        final BufferPool bufferPool = new BufferPool(256);
+        final Set<Long> threadIds = ConcurrentHashMap.newKeySet();
+        final ServerMetrics.Recorder metrics = new ServerMetrics.Recorder();
+        volatile boolean isClosing;
+        final CompletableFuture<Integer> started = new CompletableFuture<>();
+        Thread acceptorThread;
 
-        void reset() {
-            requests.clear();
-            requestCount = 0;
-            responses.clear();
+        /**
+         * record the request in the journal of its scope and get the response to it
+         */
+        Response dispatch(String input, SimpleHttpRequest request) {
+            logger.debug(() -> "Client Request:" + input);
+            metrics.requests.increment();
+            SimpleHttpRequest recorded = (request == null ? new SimpleHttpRequest() : request).text(input);
+            TestScope scope = scopeOf(recorded);
+            scope.journal.record(recorded);
+            return scope.nextResponse(recorded);
         }
-    
+
+        /**
+         * the scope named by the first segment of the path, which is removed from the path and the url of the request
+         */
+        TestScope scopeOf(SimpleHttpRequest request) {
+            String path = request.getPath();
+            if (scopes.isEmpty() || path == null || path.length() < 2) {
+                return defaultScope;
+            }
+            int end = path.indexOf('/', 1);
+            if (end < 0) {
+                end = path.length();
+            }
+            TestScope scope = scopes.get(path.substring(1, end));
+            if (scope == null) {
+                return defaultScope;
+            }
+            String url = request.getUrl().substring(end);
+            request.path(end == path.length() ? "/" : path.substring(end))
+                   .url(url.startsWith("/") ? url : "/" + url);
+            return scope;
+        }
+
+        /**
+         * add a scope with a name which is not used by the other classes
+         */
+        TestScope addScope(String name, RequestRetention retention, int journalCapacity, int sampleInterval, ResponseBehavior defaults) {
+            for (int i = 1; ; i++) {
+                String unique = i == 1 ? name : name + "-" + i;
+                TestScope scope = new TestScope("/" + unique, retention, journalCapacity, sampleInterval, defaults);
+                if (scopes.putIfAbsent(unique, scope) == null) {
+                    return scope;
+                }
+            }
+        }
+
+        /**
+         * the heap allocated by the acceptor and the worker threads, or -1 if the JVM does not measure it
+         */
+        AllocationMetrics allocationMetrics() {
+            long allocatedBytes = -1;
+            java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean)threadMXBean;
+                if (mxBean.isThreadAllocatedMemorySupported() && mxBean.isThreadAllocatedMemoryEnabled()) {
+                    allocatedBytes = 0;
+                    for (long threadId : threadIds) {
+                        allocatedBytes += Math.max(0, mxBean.getThreadAllocatedBytes(threadId));
+                    }
+                }
+            }
+            return new AllocationMetrics(allocatedBytes, bufferPool.getCreated(), bufferPool.getReused());
+        }
+
         @Override
         public void run() {
+            threadIds.add(Thread.currentThread().getId());
             try {
-                SSLContext context = null;
-
-                if (enableSecurity) {
-                    KeyStore ks = KeyStore.getInstance("JKS");
-                    KeyStore ts = KeyStore.getInstance("JKS");
-                    char[] passphrase = password.toCharArray();
-            
-                    ks.load(new FileInputStream(keyStoreFile), passphrase);
-                    ts.load(new FileInputStream(trustStoreFile), passphrase);
-            
-                    KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
-                    kmf.init(ks, passphrase);
-            
-                    TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
-                    tmf.init(ts);
-            
-                    context = SSLContext.getInstance("TLS");
-                    context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+                if (virtualThreads) {
+                    runBlocking();
+                    return;
                 }
-
                 serverSocket = ServerSocketChannel.open();
                 serverSocket.configureBlocking(false);
                 serverSocket.socket().bind(new InetSocketAddress(port));
+                boundPort = serverSocket.socket().getLocalPort();
                 selector = Selector.open();
                 serverSocket.register(selector, SelectionKey.OP_ACCEPT);
-                isReady.set(true);
+                if (enableSecurity) {
+                    handshakeExecutor = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "TestHttpServer-handshake");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                workers = new Worker[workerThreads];
+                workerThreadList = new Thread[workerThreads];
+                for (int i = 0; i < workerThreads; i++) {
+                    workers[i] = new Worker(Selector.open());
+                    workerThreadList[i] = new Thread(workers[i], "TestHttpServer-worker-" + i);
+                    workerThreadList[i].start();
+                }
+                started.complete(boundPort);
+                int next = 0;
                 while (serverSocket.isOpen() && selector.isOpen()) {
                     selector.select(); // blocking operation
                     if (isClosing) break;
+                    selector.selectedKeys().clear();
+                    SocketChannel client;
+                    while ((client = serverSocket.accept()) != null) {
+                        // The new client connection is handed to a worker in turn
+                        workers[next++ % workers.length].register(client);
+                    }
+                }
+            } catch (Throwable e) {
+                // the failure before the start is thrown by beforeAll
+                if (!started.completeExceptionally(e) && !isClosing) {
+                    logger.error(() -> e.getLocalizedMessage());
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * @return the configured protocols which the implementation supports
+         */
+        String[] enabledProtocols(String[] supported) {
+            List<String> list = Arrays.asList(supported);
+            String[] enabled = Stream.of(protocols).filter(list::contains).toArray(String[]::new);
+            if (enabled.length == 0) {
+                throw new IllegalArgumentException("none of the protocols is supported: " + Arrays.toString(protocols));
+            }
+            return enabled;
+        }
+
+        /**
+         * accept the connections with a blocking server socket and serve each of them on its own thread
+         */
+        private void runBlocking() throws IOException {
+            ThreadFactory threadFactory = connectionThreadFactory();
+            if (enableSecurity) {
+                SSLServerSocket sslServerSocket = (SSLServerSocket)sslContext.getServerSocketFactory().createServerSocket();
+                sslServerSocket.setEnabledProtocols(enabledProtocols(sslServerSocket.getSupportedProtocols()));
+                blockingServerSocket = sslServerSocket;
+            } else {
+                blockingServerSocket = new ServerSocket();
+            }
+            blockingServerSocket.bind(new InetSocketAddress(port));
+            boundPort = blockingServerSocket.getLocalPort();
+            started.complete(boundPort);
+            while (!isClosing) {
+                Socket socket;
+                try {
+                    socket = blockingServerSocket.accept();
+                } catch (IOException e) {
+                    if (isClosing) break;
+                    throw e;
+                }
+                sockets.add(socket);
+                threadFactory.newThread(() -> serve(socket)).start();
+            }
+        }
+
+        /**
+         * each request framed from the bytes of the client is answered by the next response in order
+         */
+        private void serve(Socket socket) {
+            logger.debug(() -> "The new connection is accepted from the client: " + socket);
+            metrics.connectionOpened();
+            try (socket) {
+                if (socket instanceof SSLSocket) {
+                    long start = System.nanoTime();
+                    ((SSLSocket)socket).startHandshake();
+                    metrics.handshakeTime.record(System.nanoTime() - start);
+                }
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                WritableByteChannel channel = Channels.newChannel(out);
+                ByteBuffer data = ByteBuffer.allocate(BUFFER_SIZE);
+                SimpleHttpRequestParser parser = new SimpleHttpRequestParser();
+                int byteReads;
+                boolean keepalive = true;
+                while (keepalive && (byteReads = in.read(data.array(), data.position(), data.remaining())) != -1) {
+                    long readTime = System.nanoTime();
+                    metrics.bytesIn.add(byteReads);
+                    data.position(data.position() + byteReads);
+                    data.flip();
+                    int length;
+                    while (keepalive && (length = HttpRequestFramer.nextRequest(data)) != 0) {
+                        if (length == HttpRequestFramer.MALFORMED) {
+                            writeBlocking(socket, channel, BAD_REQUEST);
+                            keepalive = false;
+                            break;
+                        }
+                        int limit = data.limit();
+                        data.limit(data.position() + length);
+                        SimpleHttpRequest request = parser.parse(data);
+                        String input = new String(data.array(), data.position(), length).trim();
+                        data.position(data.limit()).limit(limit);
+                        if (input.isEmpty()) {
+                            continue;
+                        }
+                        Response res = dispatch(input, request);
+                        keepalive = writeBlocking(socket, channel, res);
+                        metrics.latency.record(System.nanoTime() - readTime);
+                    }
+                    out.flush();
+                    data.compact();
+                    if (!data.hasRemaining()) {
+                        // a request larger than the buffer
+                        ByteBuffer larger = ByteBuffer.allocate(data.capacity() * 2);
+                        data.flip();
+                        data = larger.put(data);
+                    }
+                }
+            } catch (IOException e) {
+                if (!isClosing) {
+                    logger.debug(() -> "The connection is closed: " + e.getLocalizedMessage());
+                }
+            } catch (RuntimeException e) {
+                logger.error(e, () -> "The connection is closed by a failure of the request: " + e);
+            } finally {
+                sockets.remove(socket);
+                metrics.connectionClosed();
+            }
+        }
+
+        /**
+         * write the response with its delay, rate and fault, the connection thread sleeps for them
+         * @return true if the connection is kept alive
+         */
+        private boolean writeBlocking(Socket socket, WritableByteChannel channel, Response res) throws IOException {
+            ResponseBehavior behavior = res.behavior;
+            sleep(behavior.nextDelayNanos());
+            ResponseFault fault = behavior.nextFault();
+            if (fault == ResponseFault.CONNECTION_RESET) {
+                socket.setSoLinger(true, 0);
+                socket.close();
+                return false;
+            }
+            long end = fault == ResponseFault.PARTIAL_RESPONSE ? res.length() / 2 : Long.MAX_VALUE;
+            long rate = behavior.bytesPerSecond;
+            long chunk = rate > 0 ? Math.max(1, rate * TIMER_TICK_MILLIS / 1000) : Long.MAX_VALUE;
+            long start = System.nanoTime();
+            long sent = 0;
+            for (ByteBuffer encoded : res.duplicate()) {
+                while (encoded.hasRemaining() && sent < end) {
+                    if (rate > 0) {
+                        sleep(start + sent * 1_000_000_000 / rate - System.nanoTime());
+                    }
+                    int limit = encoded.limit();
+                    encoded.limit((int)Math.min(limit, encoded.position() + Math.min(chunk, end - sent)));
+                    int count = channel.write(encoded);
+                    sent += count;
+                    metrics.bytesOut.add(count);
+                    encoded.limit(limit);
+                }
+            }
+            if (res.bodyFile != null) {
+                try (FileChannel file = FileChannel.open(res.bodyFile, StandardOpenOption.READ)) {
+                    long position = 0;
+                    while (position < res.bodyLength && sent < end) {
+                        if (rate > 0) {
+                            sleep(start + sent * 1_000_000_000 / rate - System.nanoTime());
+                        }
+                        long count = file.transferTo(position, Math.min(res.bodyLength - position, Math.min(chunk, end - sent)), channel);
+                        if (count <= 0) {
+                            break;
+                        }
+                        position += count;
+                        sent += count;
+                        metrics.bytesOut.add(count);
+                    }
+                }
+            }
+            return res.keepalive && fault == ResponseFault.NONE;
+        }
+
+        private void sleep(long nanos) throws IOException {
+            if (nanos <= 0) {
+                return;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("the response has been interrupted");
+            }
+        }
+
+        /**
+         * Selector loop of the connections handed from the acceptor
+         */
+        class Worker implements Runnable {
+            final Selector selector;
+            final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+            final Queue<ClientConnection> resumed = new ConcurrentLinkedQueue<>();
+            // the received bytes are copied from the direct buffers to be decoded
+            byte[] scratch = new byte[BUFFER_SIZE];
+            final SimpleHttpRequestParser parser = new SimpleHttpRequestParser();
+            // the delayed and the throttled responses
+            final TimerWheel timers = new TimerWheel(TIMER_TICK_MILLIS, 512);
+
+            Worker(Selector selector) {
+                this.selector = selector;
+            }
+
+            void register(SocketChannel client) {
+                pending.add(client);
+                selector.wakeup();
+            }
+
+            /**
+             * continue the handshake on this worker after the delegated tasks have run
+             */
+            void resume(ClientConnection conn) {
+                resumed.add(conn);
+                selector.wakeup();
+            }
+
+            @Override
+            public void run() {
+                threadIds.add(Thread.currentThread().getId());
+                try {
+                    while (!isClosing) {
+                        selector.select(timers.timeoutMillis()); // blocking operation
+                        if (isClosing) break;
+                        SocketChannel client;
+                        while ((client = pending.poll()) != null) {
+                            accept(client);
+                        }
+                        ClientConnection conn;
+                        while ((conn = resumed.poll()) != null) {
+                            process(conn);
+                        }
+                        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                        while (it.hasNext()) {
+                            SelectionKey selKey = it.next();
+                            it.remove();
+                            process((ClientConnection)selKey.attachment());
+                        }
+                        timers.expire();
+                    }
+                    drain();
+                } catch (Throwable e) {
+                    if (!isClosing) {
+                        logger.error(() -> e.getLocalizedMessage());
+                        e.printStackTrace();
+                    }
+                } finally {
+                    for (SelectionKey key : selector.keys()) {
+                        ((ClientConnection)key.attachment()).close();
+                    }
+                    SocketChannel client;
+                    while ((client = pending.poll()) != null) {
+                        closeQuietly(client);
+                    }
+                    closeQuietly(selector);
+                }
+            }
+
+            /**
+             * finish writing the responses in progress within the shutdown timeout without reading new requests,
+             * the idle connections are closed at once
+             */
+            private void drain() throws IOException {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+                while (true) {
+                    for (SelectionKey key : selector.keys()) {
+                        ClientConnection conn = (ClientConnection)key.attachment();
+                        if (!conn.isWriting()) {
+                            conn.close();
+                        }
+                    }
+                    // the keys of the closed connections are removed
+                    selector.selectNow();
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (selector.keys().isEmpty() || remaining <= 0) {
+                        return;
+                    }
+                    selector.selectedKeys().clear();
+                    long timeout = timers.timeoutMillis();
+                    selector.select(timeout == 0 ? remaining : Math.min(timeout, remaining));
                     Iterator<SelectionKey> it = selector.selectedKeys().iterator();
                     while (it.hasNext()) {
-                        SelectionKey selKey = (SelectionKey) it.next();
+                        ClientConnection conn = (ClientConnection)it.next().attachment();
                         it.remove();
+                        process(conn);
+                    }
+                    timers.expire();
+                }
+            }
 
-                        if (!selKey.isValid()) {
-                        } else if (selKey.isAcceptable()) {
-                            // The new client connection is accepted
-                            SocketChannel client = serverSocket.accept();
-                            client.configureBlocking(false);
-
-                            if (enableSecurity) {
-                                SSLEngine engine = context.createSSLEngine();
-                                engine.setUseClientMode(false);
-                                SSLSession session = engine.getSession();
-                                appBufferMax = session.getApplicationBufferSize();
-                                netBufferMax = session.getPacketBufferSize();
-                                session.invalidate();
-
-                                engine.beginHandshake();
-                                if (handshake(client, engine)) {
-                                    // The new connection is added to a selector
-                                    client.register(selector, SelectionKey.OP_READ, engine);
-                                    logger.info(() -> "The new connection is accepted from the client: " + client);
-                                } else {
-                                    logger.error(() -> "Handshake has failed");
-                                    ByteBuffer res = ByteBuffer.wrap("HTTP/1.1 503 Service Unavailable\r\nContent-Length: 0\r\n\r\n".getBytes());
-                                    while (res.hasRemaining()) {
-                                        client.write(res);
-                                    }
-                                    client.close();
-                                    selKey.interestOps(SelectionKey.OP_ACCEPT);
-                                };
-                            } else {
-                                appBufferMax = BUFFER_SIZE;
-                                netBufferMax = BUFFER_SIZE;
-                                client.register(selector, SelectionKey.OP_READ);
-                                logger.info(() -> "The new connection is accepted from the client: " + client);
-                            }
-                        } else if (selKey.isReadable()) {
-                            // Data is read from the client
-                            SocketChannel client = (SocketChannel)selKey.channel();
-                            SSLEngine engine = (SSLEngine)selKey.attachment();
-                            int byteReads = read(client, engine);
-                            if (byteReads == -1) {
-                                client.close();
-                            } else if (byteReads > 0) {
-                                write(client, engine);
-                            }
-                        }
+            private void accept(SocketChannel client) throws IOException {
+                client.configureBlocking(false);
+                ClientConnection conn = new ClientConnection(client, this);
+                conn.key = client.register(selector, SelectionKey.OP_READ, conn);
+                logger.debug(() -> "The new connection is accepted from the client: " + client);
+                metrics.connectionOpened();
+                if (!enableSecurity) {
+                    conn.netIn = bufferPool.acquire(BUFFER_SIZE);
+                } else {
+                    SSLEngine engine = sslContext.createSSLEngine();
+                    engine.setUseClientMode(false);
+                    engine.setEnabledProtocols(enabledProtocols(engine.getSupportedProtocols()));
+                    SSLSession session = engine.getSession();
+                    conn.engine = engine;
+                    conn.appBufferMax = session.getApplicationBufferSize();
+                    conn.netBufferMax = session.getPacketBufferSize();
+                    conn.netIn = bufferPool.acquire(conn.netBufferMax);
+                    conn.appIn = bufferPool.acquire(conn.appBufferMax);
+                    conn.netOut = bufferPool.acquire(conn.netBufferMax);
+                    engine.beginHandshake();
+                    conn.handshaking = true;
+                    process(conn);
+                }
+            }
+
+            /**
+             * drive the connection from its state: the pending output, the handshake and then the requests
+             */
+            private void process(ClientConnection conn) {
+                if (!conn.key.isValid() || conn.waiting) {
+                    return;
+                }
+                try {
+                    if (!conn.flush() || !writePending(conn)) {
+                        return;
+                    }
+                    // no request is read while the worker drains the connections
+                    if (isClosing || (conn.handshaking && !handshake(conn))) {
+                        return;
+                    }
+                    int received = read(conn);
+                    if (received == -1) {
+                        conn.close();
+                    } else if (received > 0) {
+                        writePending(conn);
                     }
+                } catch (SSLException e) {
+                    logger.error(() -> "Handshake has failed: " + e.getLocalizedMessage());
+                    conn.close();
+                } catch (IOException e) {
+                    logger.debug(() -> "The connection is closed: " + e.getLocalizedMessage());
+                    conn.close();
+                } catch (RuntimeException e) {
+                    // only the connection of the request is closed, and the worker serves the others
+                    logger.error(e, () -> "The connection is closed by a failure of the request: " + e);
+                    conn.close();
                 }
-            } catch (Throwable e) {
-                logger.error(() -> e.getLocalizedMessage());
-                e.printStackTrace();
             }
         }
 
-        private int read(SocketChannel client, SSLEngine engine) throws IOException {
-            ByteBuffer peerNetData = ByteBuffer.allocate(netBufferMax);
+        /**
+         * read the available bytes and record the complete requests in them.
+         * The bytes of an incomplete request are kept in the inbound buffer until the rest arrives.
+         * @return the number of the requests to be answered, or -1 if the client has closed the connection
+         */
+        private int read(ClientConnection conn) throws IOException {
+            SocketChannel client = conn.channel;
+            SSLEngine engine = conn.engine;
             int byteReads = 0;
-            int totalbyte = 0;
-            StringBuilder input = new StringBuilder();
-            while ((byteReads = client.read(peerNetData)) > 0) {
-                if (engine != null) {
-                    peerNetData.flip();
-                    ByteBuffer peerAppData = ByteBuffer.allocate(appBufferMax);
-                    while (peerNetData.hasRemaining()) {
-                        SSLEngineResult result = engine.unwrap(peerNetData, peerAppData);
-                        switch (result.getStatus()) {
-                        case OK:
-                            peerAppData.flip();
-                            input.append(new String(peerAppData.array(), 0, peerAppData.array().length).trim());
-                            break;
-                        case BUFFER_OVERFLOW:
-                            peerAppData = ByteBuffer.allocate(peerAppData.capacity() * 2);
-                            break;
-                        case BUFFER_UNDERFLOW:
-                            peerNetData = ByteBuffer.allocate(peerNetData.capacity() * 2);
-                            break;
-                        case CLOSED:
-                            closeConnection(client, engine);
-                            return 0;
-                        default:
-                            throw new IllegalStateException("Invalid SSL status: " + result.getStatus());
+            // the data may have arrived with the last handshake message
+            if (engine != null && !unwrap(conn)) {
+                return 0;
+            }
+            while (true) {
+                if (engine == null && !conn.netIn.hasRemaining()) {
+                    conn.netIn = bufferPool.enlarge(conn.netIn);
+                }
+                if ((byteReads = client.read(conn.netIn)) <= 0) {
+                    break;
+                }
+                metrics.bytesIn.add(byteReads);
+                if (engine != null && !unwrap(conn)) {
+                    return 0;
+                }
+            }
+            int count = frame(conn, engine != null ? conn.appIn : conn.netIn);
+            return byteReads == -1 ? -1 : count;
+        }
+
+        /**
+         * record the complete requests in the buffer in write mode and leave the rest in it
+         * @return the number of the requests
+         */
+        private int frame(ClientConnection conn, ByteBuffer buffer) {
+            int count = 0;
+            long readTime = System.nanoTime();
+            buffer.flip();
+            try {
+                int length;
+                while (!conn.malformed && (length = HttpRequestFramer.nextRequest(buffer)) != 0) {
+                    if (length == HttpRequestFramer.MALFORMED) {
+                        // the rest of the bytes can not be framed, and the connection is closed after the answer
+                        conn.malformed = true;
+                        conn.unanswered.add(BAD_REQUEST);
+                        conn.addReadTime(readTime);
+                        count++;
+                        break;
+                    }
+                    int limit = buffer.limit();
+                    buffer.limit(buffer.position() + length);
+                    SimpleHttpRequest request = conn.worker.parser.parse(buffer);
+                    String input = decode(conn, buffer, length);
+                    buffer.limit(limit);
+                    if (input.isEmpty()) {
+                        continue;
+                    }
+                    conn.unanswered.add(dispatch(input, request));
+                    conn.addReadTime(readTime);
+                    count++;
+                }
+            } finally {
+                if (conn.malformed) {
+                    buffer.position(buffer.limit());
+                }
+                buffer.compact();
+            }
+            return count;
+        }
+
+        /**
+         * decrypt the records in the inbound buffer into the application buffer, a partial record is kept until the rest arrives
+         * @return false if the connection has been closed or the handshake has not finished
+         */
+        private boolean unwrap(ClientConnection conn) throws IOException {
+            conn.netIn.flip();
+            try {
+                while (conn.netIn.hasRemaining() && !conn.handshaking) {
+                    SSLEngineResult result = conn.engine.unwrap(conn.netIn, conn.appIn);
+                    switch (result.getStatus()) {
+                    case OK:
+                        // a post-handshake message such as a key update
+                        HandshakeStatus handshakeStatus = result.getHandshakeStatus();
+                        conn.handshaking = handshakeStatus != HandshakeStatus.NOT_HANDSHAKING && handshakeStatus != HandshakeStatus.FINISHED;
+                        break;
+                    case BUFFER_OVERFLOW:
+                        conn.appIn = bufferPool.enlarge(conn.appIn);
+                        break;
+                    case BUFFER_UNDERFLOW:
+                        if (conn.netIn.limit() == conn.netIn.capacity()) {
+                            // a record larger than the buffer
+                            conn.netIn.compact();
+                            conn.netIn = bufferPool.enlarge(conn.netIn);
+                            conn.netIn.flip();
                         }
+                        return true;
+                    case CLOSED:
+                        closeConnection(conn);
+                        return false;
+                    default:
+                        throw new IllegalStateException("Invalid SSL status: " + result.getStatus());
                     }
-                } else {
-                    input.append(new String(peerNetData.array(), 0, byteReads).trim());
                 }
-                totalbyte += byteReads;
-                peerNetData.clear();
-            };
-            if (input.length() > 0) {
-                logger.info(() -> "Client Request:" + input.toString());
-                requests.add(input.toString());
-            }
-
-            return byteReads == -1 ? -1 : totalbyte;
-        }
-
-        private void write(SocketChannel client, SSLEngine engine) throws IOException {
-            Response res = responses.get(requestCount < responses.size() ? requestCount++ : responses.size() - 1);
-            byte[] message = res.message.getBytes();
-            int offset = 0;
-            ByteBuffer appData = ByteBuffer.allocate(appBufferMax);
-            ByteBuffer netData = ByteBuffer.allocate(netBufferMax);
-            while (message.length - offset > 0) {
-                appData.put(message, offset, Math.min(message.length - offset, appBufferMax));
-                appData.flip();
-                while (appData.hasRemaining()) {
-                    if (engine != null) {
-                        netData.clear();
-                        SSLEngineResult result = engine.wrap(appData, netData);
-                        switch (result.getStatus()) {
-                        case OK:
-                            netData.flip();
-                            while (netData.hasRemaining()) {
-                                client.write(netData);
+            } finally {
+                if (conn.netIn != null) {
+                    conn.netIn.compact();
+                }
+            }
+            return !conn.handshaking || handshake(conn);
+        }
+
+        /**
+         * decode the length of the received bytes from the position of the buffer in read mode
+         */
+        private String decode(ClientConnection conn, ByteBuffer buffer, int length) {
+            if (conn.worker.scratch.length < length) {
+                conn.worker.scratch = new byte[Math.max(length, conn.worker.scratch.length * 2)];
+            }
+            buffer.get(conn.worker.scratch, 0, length);
+            return new String(conn.worker.scratch, 0, length).trim();
+        }
+
+        /**
+         * set the response to the pending state of the connection
+         */
+        private void startResponse(ClientConnection conn, Response res) throws IOException {
+            conn.pendingData = res.duplicate();
+            conn.readTime = conn.pollReadTime();
+            conn.responding = true;
+            if (res.bodyFile != null) {
+                conn.pendingFile = FileChannel.open(res.bodyFile, StandardOpenOption.READ);
+                conn.filePosition = 0;
+                conn.fileEnd = res.bodyLength;
+                if (conn.engine != null && conn.appOut == null) {
+                    conn.appOut = bufferPool.acquire(conn.appBufferMax);
+                    conn.appOut.flip();
+                    conn.appOutArray = new ByteBuffer[] { conn.appOut };
+                }
+            }
+            conn.closeAfterWrite = !res.keepalive;
+            ResponseBehavior behavior = res.behavior;
+            long delay = behavior.nextDelayNanos();
+            conn.rate = behavior.bytesPerSecond;
+            conn.rateStart = System.nanoTime() + delay;
+            conn.sent = 0;
+            conn.fault = behavior.nextFault();
+            if (conn.fault == ResponseFault.PARTIAL_RESPONSE) {
+                long rest = res.length() / 2;
+                for (ByteBuffer buffer : conn.pendingData) {
+                    int length = (int)Math.min(buffer.remaining(), rest);
+                    buffer.limit(buffer.position() + length);
+                    rest -= length;
+                }
+                conn.fileEnd = Math.min(conn.fileEnd, rest);
+            }
+            if (conn.fault != ResponseFault.NONE) {
+                conn.closeAfterWrite = true;
+            }
+            if (delay > 0) {
+                conn.pause(delay);
+            }
+        }
+
+        /**
+         * write the responses of the unanswered requests in the order of the requests,
+         * the next one is started when the previous one has been written.
+         * A response without keep-alive closes the connection and the rest of the requests are not answered.
+         * @return false if the responses have not been written or the connection has been closed
+         */
+        private boolean writePending(ClientConnection conn) throws IOException {
+            while (true) {
+                if (!writeResponse(conn)) {
+                    return false;
+                }
+                if (conn.responding) {
+                    conn.responding = false;
+                    metrics.latency.record(System.nanoTime() - conn.readTime);
+                }
+                if (conn.closeAfterWrite) {
+                    // the injected faults close the connection without close_notify
+                    if (conn.engine != null && conn.fault == ResponseFault.NONE) {
+                        closeConnection(conn);
+                    }
+                    conn.close();
+                    return false;
+                }
+                Response next = conn.unanswered.poll();
+                if (next == null) {
+                    break;
+                }
+                startResponse(conn, next);
+            }
+            if (conn.key.interestOps() == SelectionKey.OP_WRITE) {
+                conn.key.interestOps(SelectionKey.OP_READ);
+            }
+            return true;
+        }
+
+        /**
+         * write the rest of the response as far as the socket accepts it, and wait for OP_WRITE to continue.
+         * The body file is transferred by the kernel on plain connections, and is read and wrapped
+         * chunk by chunk through the outbound application buffer on TLS connections.
+         * A throttled response is written by the quota of its rate, and is continued by the timer of the worker.
+         * @return false if the response has not been written or the connection has been closed
+         */
+        private boolean writeResponse(ClientConnection conn) throws IOException {
+            if (conn.waiting) {
+                return false;
+            }
+            if (conn.fault == ResponseFault.CONNECTION_RESET) {
+                conn.reset();
+                return false;
+            }
+            while (conn.pendingData != null || conn.pendingFile != null) {
+                if (conn.engine == null) {
+                    long quota = conn.quota();
+                    if (quota <= 0) {
+                        return conn.pauseForRate();
+                    }
+                    if (conn.pendingData != null) {
+                        long count = conn.write(conn.pendingData, quota);
+                        conn.sent += count;
+                        if (Response.hasRemaining(conn.pendingData)) {
+                            if (count < quota) {
+                                return conn.waitWritable();
                             }
-                            break;
-                        case BUFFER_OVERFLOW:
-                            netData = ByteBuffer.allocate(netData.capacity() * 2);
-                            break;
-                        case BUFFER_UNDERFLOW:
-                            appData = ByteBuffer.allocate(appData.capacity() * 2);
-                            break;
-                        case CLOSED:
-                            closeConnection(client, engine);
-                            return;
-                        default:
-                            throw new IllegalStateException("Invalid SSL status: " + result.getStatus());
+                            continue;
                         }
+                        conn.pendingData = null;
                     } else {
-                        client.write(appData);
+                        long count = conn.pendingFile.transferTo(conn.filePosition, Math.min(quota, conn.fileEnd - conn.filePosition), conn.channel);
+                        conn.filePosition += count;
+                        conn.sent += count;
+                        metrics.bytesOut.add(count);
+                        if (conn.filePosition >= conn.fileEnd) {
+                            conn.closeFile();
+                        } else if (count == 0) {
+                            return conn.waitWritable();
+                        }
+                    }
+                } else {
+                    ByteBuffer[] appData = conn.pendingData;
+                    if (appData == null) {
+                        if (!conn.appOut.hasRemaining()) {
+                            if (conn.filePosition >= conn.fileEnd) {
+                                conn.closeFile();
+                                continue;
+                            }
+                            conn.appOut.clear();
+                            conn.appOut.limit((int)Math.min(conn.appOut.capacity(), conn.fileEnd - conn.filePosition));
+                            int count = conn.pendingFile.read(conn.appOut, conn.filePosition);
+                            conn.appOut.flip();
+                            if (count <= 0) {
+                                // the file has been truncated
+                                conn.closeFile();
+                                continue;
+                            }
+                            conn.filePosition += count;
+                        }
+                        appData = conn.appOutArray;
+                    }
+                    SSLEngineResult result = conn.engine.wrap(appData, conn.netOut);
+                    switch (result.getStatus()) {
+                    case OK:
+                        break;
+                    case BUFFER_OVERFLOW:
+                        conn.netOut = bufferPool.enlarge(conn.netOut);
+                        break;
+                    case CLOSED:
+                        closeConnection(conn);
+                        return false;
+                    default:
+                        throw new IllegalStateException("Invalid SSL status: " + result.getStatus());
+                    }
+                    if (conn.pendingData != null && !Response.hasRemaining(conn.pendingData)) {
+                        conn.pendingData = null;
+                    }
+                    if (!conn.flush()) {
+                        return false;
                     }
                 }
-                appData.clear();
-                offset += appBufferMax;
-            }
-            if (!res.keepalive) {
-                if (engine != null) {
-                    engine.closeOutbound();
-                    handshake(client, engine);
-                }
-                client.close();
             }
+            return true;
         }
 
+        /**
+         * stop accepting the connections, let the responses in progress be written within the shutdown timeout
+         * and join the server threads
+         */
         @Override
         public void close() {
             logger.info(() -> "Test Server is closing.");
-            try {
-                isClosing = true;
-                if (serverSocket != null) {
-                    serverSocket.close();        
+            isClosing = true;
+            // the port is released before the next server starts
+            closeQuietly(serverSocket);
+            closeQuietly(selector);
+            closeQuietly(blockingServerSocket);
+            join(acceptorThread, shutdownTimeout);
+            long deadline = System.currentTimeMillis() + shutdownTimeout;
+            if (workers != null) {
+                for (Worker worker : workers) {
+                    worker.selector.wakeup();
                 }
-                if (selector != null) {
-                    selector.close();
+                for (Thread thread : workerThreadList) {
+                    join(thread, Math.max(1, deadline - System.currentTimeMillis()) + 1000);
+                }
+            }
+            if (handshakeExecutor != null) {
+                handshakeExecutor.shutdownNow();
+            }
+            // the blocking connections end after the response in progress, when they read the end of the stream
+            for (Socket socket : sockets) {
+                try {
+                    socket.shutdownInput();
+                } catch (IOException | UnsupportedOperationException e) {
+                    closeQuietly(socket);
+                }
+            }
+            while (!sockets.isEmpty() && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            for (Socket socket : sockets) {
+                closeQuietly(socket);
+            }
+        }
+
+        private void join(Thread thread, long millis) {
+            if (thread == null || thread == Thread.currentThread()) {
+                return;
+            }
+            try {
+                thread.join(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void closeQuietly(Closeable closeable) {
+            try {
+                if (closeable != null) {
+                    closeable.close();
                 }
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
 
-        boolean handshake(SocketChannel client, SSLEngine engine) throws IOException {
-            SSLEngineResult sslResult = null;
-            ByteBuffer serverOut = ByteBuffer.wrap("Hello Client, I'm Server".getBytes());
-            ByteBuffer clientIn = ByteBuffer.allocateDirect(appBufferMax + 50);
-            ByteBuffer cTOs = ByteBuffer.allocateDirect(netBufferMax);
-            ByteBuffer sTOc = ByteBuffer.allocateDirect(netBufferMax);
-    
-            HandshakeStatus handshakeStatus = engine.getHandshakeStatus();
-            while (handshakeStatus != HandshakeStatus.FINISHED && handshakeStatus != HandshakeStatus.NOT_HANDSHAKING) {
-
-                switch (handshakeStatus) {
+        /**
+         * advance the handshake as far as it goes without blocking.
+         * The worker is called again when the channel is readable or writable, or when the delegated tasks
+         * of the engine have run on the executor.
+         * @return true if the handshake has finished
+         */
+        boolean handshake(ClientConnection conn) throws IOException {
+            SSLEngine engine = conn.engine;
+            while (conn.flush()) {
+                switch (engine.getHandshakeStatus()) {
                 case NEED_TASK:
-                    Runnable runnable;
-                    while ((runnable = engine.getDelegatedTask()) != null) {
-                        runnable.run();
-                    }
-                    handshakeStatus = engine.getHandshakeStatus();
-                    break;
+                    conn.key.interestOps(0);
+                    handshakeExecutor.execute(() -> {
+                        Runnable runnable;
+                        while ((runnable = engine.getDelegatedTask()) != null) {
+                            runnable.run();
+                        }
+                        conn.worker.resume(conn);
+                    });
+                    return false;
                 case NEED_WRAP:
-                    sTOc.clear();
-                    sslResult = engine.wrap(serverOut, sTOc);
-                    handshakeStatus = sslResult.getHandshakeStatus();
-                    switch (sslResult.getStatus()) {
+                    SSLEngineResult wrapResult = engine.wrap(EMPTY_BUFFER, conn.netOut);
+                    switch (wrapResult.getStatus()) {
                     case OK:
-                        sTOc.flip();
-                        while (sTOc.hasRemaining()) {
-                            client.write(sTOc);
-                        }
                         break;
                     case BUFFER_OVERFLOW:
-                        sTOc = ByteBuffer.allocate(sTOc.capacity() * 2);
+                        conn.netOut = bufferPool.enlarge(conn.netOut);
                         break;
                     case CLOSED:
-                        // sTOc.flip();
-                        // while (sTOc.hasRemaining()) {
-                        //     client.write(sTOc);
-                        // }
-                        // clientIn.clear();
-                        // closeConnection(client, engine);
-                        handshakeStatus = engine.getHandshakeStatus();
-                        break;
+                        conn.flush();
+                        conn.close();
+                        return false;
                     default:
-                        throw new IllegalStateException("Invalid SSL status: " + sslResult.getStatus());
+                        throw new IllegalStateException("Invalid SSL status: " + wrapResult.getStatus());
                     }
                     break;
                 case NEED_UNWRAP:
-                    int byteReads = client.read(clientIn);
-                    if (byteReads < 0) {
-                        engine.closeInbound();
-                        engine.closeOutbound();
-                        handshakeStatus = engine.getHandshakeStatus();
-                        break;
-                    }
-                    clientIn.flip();
-                    try {
-                        cTOs.clear();
-                        sslResult = engine.unwrap(clientIn, cTOs);
-                        handshakeStatus = sslResult.getHandshakeStatus();
-                    } catch (SSLException e) {
-                        engine.closeOutbound();
-                        handshakeStatus = engine.getHandshakeStatus();
-                        break;
-                    }
-                    clientIn.compact();
-                    switch (sslResult.getStatus()) {
+                case NEED_UNWRAP_AGAIN:
+                    conn.netIn.flip();
+                    SSLEngineResult unwrapResult = engine.unwrap(conn.netIn, conn.appIn);
+                    conn.netIn.compact();
+                    switch (unwrapResult.getStatus()) {
                     case OK:
                         break;
                     case BUFFER_OVERFLOW:
-                        cTOs = ByteBuffer.allocate(sTOc.capacity() * 2);
+                        conn.appIn = bufferPool.enlarge(conn.appIn);
                         break;
                     case BUFFER_UNDERFLOW:
-                        // clientIn buffer is already max size.
+                        if (!conn.netIn.hasRemaining()) {
+                            conn.netIn = bufferPool.enlarge(conn.netIn);
+                        }
+                        int byteReads = conn.channel.read(conn.netIn);
+                        metrics.bytesIn.add(Math.max(0, byteReads));
+                        if (byteReads < 0) {
+                            conn.close();
+                            return false;
+                        } else if (byteReads == 0) {
+                            conn.key.interestOps(SelectionKey.OP_READ);
+                            return false;
+                        }
                         break;
                     case CLOSED:
-                        closeConnection(client, engine);
-                        handshakeStatus = engine.getHandshakeStatus();
+                        closeConnection(conn);
+                        return false;
                     default:
-                        throw new IllegalStateException("Invalid SSL status: " + sslResult.getStatus());
+                        throw new IllegalStateException("Invalid SSL status: " + unwrapResult.getStatus());
                     }
                     break;
                 default:
+                    // the application data received with the last handshake message is left in the buffers
+                    conn.handshaking = false;
+                    conn.key.interestOps(SelectionKey.OP_READ);
+                    metrics.handshakeTime.record(System.nanoTime() - conn.acceptTime);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * send close_notify and close the connection without waiting for the reply of the client
+         */
+        void closeConnection(ClientConnection conn) throws IOException {
+            conn.engine.closeOutbound();
+            while (!conn.engine.isOutboundDone()) {
+                SSLEngineResult result = conn.engine.wrap(EMPTY_BUFFER, conn.netOut);
+                if (result.getStatus() == Status.BUFFER_OVERFLOW) {
+                    conn.netOut = bufferPool.enlarge(conn.netOut);
+                } else if (result.bytesProduced() == 0) {
                     break;
                 }
             }
-            return handshakeStatus == HandshakeStatus.FINISHED;
+            conn.netOut.flip();
+            metrics.bytesOut.add(conn.channel.write(conn.netOut));
+            conn.netOut.clear();
+            conn.close();
         }
 
-        void closeConnection(SocketChannel client, SSLEngine engine) throws IOException {
-            engine.closeOutbound();
-            handshake(client, engine);
-            client.close();
+        /**
+         * State of a client connection, attached to its selection key
+         */
+        class ClientConnection {
+            final SocketChannel channel;
+            final Worker worker;
+            SelectionKey key;
+            SSLEngine engine;
+            boolean handshaking;
+            int appBufferMax = BUFFER_SIZE;
+            int netBufferMax = BUFFER_SIZE;
+            ByteBuffer netIn;
+            ByteBuffer appIn;
+            ByteBuffer netOut;
+            // the response which has not been written
+            ByteBuffer[] pendingData;
+            FileChannel pendingFile;
+            long filePosition;
+            long fileEnd;
+            boolean closeAfterWrite;
+            // true after a request which can not be framed, the following bytes are discarded
+            boolean malformed;
+            ByteBuffer appOut;
+            ByteBuffer[] appOutArray;
+            // the responses of the requests received while the previous response is written
+            final Queue<Response> unanswered = new ArrayDeque<>();
+            // the pacing and the fault of the response being written
+            long rate;
+            long rateStart;
+            long sent;
+            ResponseFault fault = ResponseFault.NONE;
+            // true while the connection waits for a timer
+            boolean waiting;
+            final long acceptTime = System.nanoTime();
+            // the times at which the unanswered requests were read, and the one of the response being written
+            private long[] readTimes = new long[4];
+            private int readHead;
+            private int readCount;
+            long readTime;
+            boolean responding;
+            private final Runnable resume = this::resume;
+            private boolean closed;
+
+            ClientConnection(SocketChannel channel, Worker worker) {
+                this.channel = channel;
+                this.worker = worker;
+            }
+
+            /**
+             * write the pending TLS records
+             * @return false if the socket buffer is full and OP_WRITE is waited for
+             */
+            boolean flush() throws IOException {
+                if (netOut == null || netOut.position() == 0) {
+                    return true;
+                }
+                long quota = quota();
+                if (quota <= 0) {
+                    return pauseForRate();
+                }
+                netOut.flip();
+                int limit = netOut.limit();
+                if (quota < netOut.remaining()) {
+                    netOut.limit(netOut.position() + (int)quota);
+                }
+                int count = channel.write(netOut);
+                sent += count;
+                metrics.bytesOut.add(count);
+                netOut.limit(limit);
+                netOut.compact();
+                if (netOut.position() > 0) {
+                    if (count < quota) {
+                        key.interestOps(SelectionKey.OP_WRITE);
+                        return false;
+                    }
+                    return pauseForRate();
+                }
+                if (key.interestOps() == SelectionKey.OP_WRITE) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                return true;
+            }
+
+            /**
+             * @return true if a response is being written or waits to be written
+             */
+            boolean isWriting() {
+                return waiting || pendingData != null || pendingFile != null || !unanswered.isEmpty()
+                        || (netOut != null && netOut.position() > 0);
+            }
+
+            boolean waitWritable() {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return false;
+            }
+
+            void addReadTime(long time) {
+                if (readCount == readTimes.length) {
+                    long[] larger = new long[readTimes.length * 2];
+                    for (int i = 0; i < readCount; i++) {
+                        larger[i] = readTimes[(readHead + i) % readTimes.length];
+                    }
+                    readTimes = larger;
+                    readHead = 0;
+                }
+                readTimes[(readHead + readCount++) % readTimes.length] = time;
+            }
+
+            long pollReadTime() {
+                if (readCount == 0) {
+                    return System.nanoTime();
+                }
+                long time = readTimes[readHead];
+                readHead = (readHead + 1) % readTimes.length;
+                readCount--;
+                return time;
+            }
+
+            /**
+             * write the first buffer with the remaining bytes up to the quota, or all of them by a gathering write
+             */
+            long write(ByteBuffer[] buffers, long quota) throws IOException {
+                long count = 0;
+                if (quota == Long.MAX_VALUE) {
+                    count = channel.write(buffers);
+                } else {
+                    for (ByteBuffer buffer : buffers) {
+                        if (buffer.hasRemaining()) {
+                            int limit = buffer.limit();
+                            buffer.limit((int)Math.min(limit, buffer.position() + quota));
+                            try {
+                                count = channel.write(buffer);
+                            } finally {
+                                buffer.limit(limit);
+                            }
+                            break;
+                        }
+                    }
+                }
+                metrics.bytesOut.add(count);
+                return count;
+            }
+
+            /**
+             * @return the number of the bytes which the rate allows to be written now, with a tick of them in advance
+             */
+            long quota() {
+                if (rate <= 0) {
+                    return Long.MAX_VALUE;
+                }
+                long elapsed = System.nanoTime() - rateStart;
+                return elapsed / 1000 * rate / 1_000_000 + Math.max(1, rate * TIMER_TICK_MILLIS / 1000) - sent;
+            }
+
+            /**
+             * wait until the rate allows a tick of the bytes to be written
+             */
+            boolean pauseForRate() {
+                return pause(rateStart + sent * 1_000_000_000 / rate - System.nanoTime());
+            }
+
+            /**
+             * stop the I/O of the connection until the timer continues it
+             * @return false
+             */
+            boolean pause(long nanos) {
+                waiting = true;
+                key.interestOps(0);
+                worker.timers.schedule(nanos, resume);
+                return false;
+            }
+
+            private void resume() {
+                waiting = false;
+                if (key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    worker.process(this);
+                }
+            }
+
+            /**
+             * close the connection with RST instead of FIN
+             */
+            void reset() {
+                try {
+                    channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+                } catch (IOException e) {
+                    // closed normally
+                }
+                close();
+            }
+
+            void closeFile() {
+                closeQuietly(pendingFile);
+                pendingFile = null;
+            }
+
+            /**
+             * close the channel and return the buffers to the pool
+             */
+            void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                metrics.connectionClosed();
+                closeQuietly(channel);
+                closeFile();
+                pendingData = null;
+                bufferPool.release(netIn);
+                bufferPool.release(appIn);
+                bufferPool.release(netOut);
+                bufferPool.release(appOut);
+                netIn = appIn = netOut = appOut = null;
+            }
+        }
+    }
+
+    /**
+     * Heap allocated by the server threads and the direct buffers created and reused by the server
+     */
+    public static class AllocationMetrics {
+        private final long allocatedBytes;
+        private final long buffersCreated;
+        private final long buffersReused;
+
+        AllocationMetrics(long allocatedBytes, long buffersCreated, long buffersReused) {
+            this.allocatedBytes = allocatedBytes;
+            this.buffersCreated = buffersCreated;
+            this.buffersReused = buffersReused;
+        }
+
+        /**
+         * @return bytes allocated on the heap by the selector threads since they started, or -1 if not supported
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getBuffersCreated() {
+            return buffersCreated;
+        }
+
+        public long getBuffersReused() {
+            return buffersReused;
+        }
+
+        @Override
+        public String toString() {
+            return "AllocationMetrics[allocatedBytes=" + this.allocatedBytes +
+                    ", buffersCreated=" + this.buffersCreated +
+                    ", buffersReused=" + this.buffersReused +
+                    "]";
         }
     }
 
     static class Response {
         String message;
         boolean keepalive;
+        // encoded once and written through the duplicates
+        private final ByteBuffer[] encoded;
+        // the body streamed after the encoded bytes, or null
+        final Path bodyFile;
+        final long bodyLength;
+        final ResponseBehavior behavior;
+        // the copies with the defaults of the extensions, which share the encoded bytes
+        private final Map<ResponseBehavior, Response> withDefaults = new ConcurrentHashMap<>();
+
         Response(String value, boolean keepalive) {
+            this(value, keepalive, encode(value.getBytes()));
+        }
+
+        Response(String value, boolean keepalive, ByteBuffer... encoded) {
+            this(value, keepalive, null, 0, encoded);
+        }
+
+        Response(String value, boolean keepalive, Path bodyFile, long bodyLength, ByteBuffer... encoded) {
+            this(value, keepalive, bodyFile, bodyLength, ResponseBehavior.NONE, encoded);
+        }
+
+        private Response(String value, boolean keepalive, Path bodyFile, long bodyLength, ResponseBehavior behavior, ByteBuffer... encoded) {
             this.message = value;
             this.keepalive = keepalive;
+            this.encoded = encoded;
+            this.bodyFile = bodyFile;
+            this.bodyLength = bodyLength;
+            this.behavior = behavior;
+        }
+
+        /**
+         * @return the response with the behavior, which shares the encoded bytes
+         */
+        Response behave(ResponseBehavior behavior) {
+            return behavior.equals(this.behavior) ? this : new Response(message, keepalive, bodyFile, bodyLength, behavior, encoded);
+        }
+
+        /**
+         * @return the response in which the behavior this does not set is taken from the defaults, created once per defaults
+         */
+        Response withDefaults(ResponseBehavior defaults) {
+            if (defaults.equals(ResponseBehavior.NONE)) {
+                return this;
+            }
+            return withDefaults.computeIfAbsent(defaults, key -> behave(behavior.orElse(key)));
+        }
+
+        /**
+         * @return the number of the bytes of the whole response
+         */
+        long length() {
+            long length = bodyLength;
+            for (ByteBuffer buffer : encoded) {
+                length += buffer.remaining();
+            }
+            return length;
+        }
+
+        /**
+         * @return the buffers to be written, which share the encoded bytes
+         */
+        ByteBuffer[] duplicate() {
+            ByteBuffer[] buffers = new ByteBuffer[encoded.length];
+            for (int i = 0; i < encoded.length; i++) {
+                buffers[i] = encoded[i].duplicate();
+            }
+            return buffers;
         }
+
+        static boolean hasRemaining(ByteBuffer[] buffers) {
+            for (ByteBuffer buffer : buffers) {
+                if (buffer.hasRemaining()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        static ByteBuffer encode(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer.asReadOnlyBuffer();
+        }
+
         @Override
         public String toString() {
             return "Response[message=" + this.message +
                     ", keepalive=" + this.keepalive +
+                    ", behavior=" + this.behavior +
                     "]";
         }
     }
@@ -0,0 +1,83 @@
+package tm000.junit5.extensions;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Databases leased to the test classes which run at the same time.
+ * When jdbc.url contains ${worker}, each lease gets its own database whose URL has the placeholder
+ * replaced by the number of the lease, so test classes running in parallel do not share any data.
+ * Released databases are reused by the following test classes.
+ * <pre>
+ * jdbc.url=jdbc:h2:mem:testdb${worker};DB_CLOSE_DELAY=-1
+ * </pre>
+ * Without the placeholder all test classes share one database.
+ */
+class WorkerDatabases implements ExtensionContext.Store.CloseableResource {
+    static final String WORKER_PLACEHOLDER = "${worker}";
+
+    private final Properties prop;
+    private final boolean perWorker;
+    private final List<ConnectionPool> pools = new ArrayList<>();
+    private final Deque<Integer> free = new ArrayDeque<>();
+
+    WorkerDatabases(Properties prop) {
+        this.prop = prop;
+        this.perWorker = prop.getProperty("jdbc.url", "").contains(WORKER_PLACEHOLDER);
+    }
+
+    /**
+     * lease a database which no other running test class uses
+     */
+    synchronized Lease lease() throws SQLException, ClassNotFoundException {
+        if (!perWorker) {
+            if (pools.isEmpty()) {
+                pools.add(new ConnectionPool(prop, prop.getProperty("jdbc.url")));
+            }
+            return new Lease(0, pools.get(0));
+        }
+        Integer worker = free.pollFirst();
+        if (worker == null) {
+            worker = pools.size();
+            pools.add(new ConnectionPool(prop, prop.getProperty("jdbc.url").replace(WORKER_PLACEHOLDER, String.valueOf(worker))));
+        }
+        return new Lease(worker, pools.get(worker));
+    }
+
+    private synchronized void release(int worker) {
+        if (perWorker) {
+            free.addFirst(worker);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        pools.forEach(ConnectionPool::close);
+        pools.clear();
+        free.clear();
+    }
+
+    /**
+     * Database leased to a test class. It is released when the store of the class is closed.
+     */
+    class Lease implements ExtensionContext.Store.CloseableResource {
+        final int worker;
+        final ConnectionPool pool;
+
+        Lease(int worker, ConnectionPool pool) {
+            this.worker = worker;
+            this.pool = pool;
+        }
+
+        @Override
+        public void close() {
+            release(worker);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionPoolTest {
+    private ConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private void createPool(String... settings) throws Exception {
+        Properties prop = new Properties();
+        prop.setProperty("jdbc.username", "sa");
+        prop.setProperty("jdbc.password", "");
+        for (int i = 0; i < settings.length; i += 2) {
+            prop.setProperty(settings[i], settings[i + 1]);
+        }
+        // the database is kept while the pool has a connection to it
+        pool = new ConnectionPool(prop, "jdbc:h2:mem:pool" + System.nanoTime());
+    }
+
+    @Test
+    void borrowAndReturn() throws Exception {
+        createPool("jdbc.pool.maxSize", "1");
+        Connection physical;
+        try (Connection con = pool.getConnection()) {
+            assertFalse(con.getAutoCommit());
+            physical = con.unwrap(Connection.class);
+            try (Statement statement = con.createStatement()) {
+                statement.execute("create table T(ID int)");
+                statement.executeUpdate("insert into T values(1)");
+            }
+        }
+        try (Connection con = pool.getConnection()) {
+            assertSame(physical, con.unwrap(Connection.class));
+            // the work which has not been committed is rolled back on return
+            assertEquals(0, count(con, "select count(*) from T"));
+        }
+    }
+
+    @Test
+    void returnedProxyIsClosed() throws Exception {
+        createPool();
+        Connection con = pool.getConnection();
+        con.close();
+        assertTrue(con.isClosed());
+        assertThrows(SQLException.class, con::createStatement);
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() throws Exception {
+        createPool("jdbc.pool.maxSize", "2", "jdbc.pool.maxWait", "200");
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            long start = System.nanoTime();
+            SQLException e = assertThrows(SQLException.class, pool::getConnection);
+            assertTrue(System.nanoTime() - start >= 150_000_000L);
+            assertTrue(e.getMessage().contains("jdbc.pool.maxSize=2"), e.getMessage());
+        }
+        // the returned connections can be borrowed again
+        try (Connection con = pool.getConnection()) {
+            assertFalse(con.isClosed());
+        }
+    }
+
+    @Test
+    void doubleCloseReleasesOnce() throws Exception {
+        createPool("jdbc.pool.maxSize", "1", "jdbc.pool.maxWait", "100");
+        Connection con = pool.getConnection();
+        con.close();
+        con.close();
+        try (Connection borrowed = pool.getConnection()) {
+            // a second permit would let the pool hand out a connection over maxSize
+            assertThrows(SQLException.class, pool::getConnection);
+        }
+    }
+
+    @Test
+    void invalidConnectionIsEvicted() throws Exception {
+        createPool("jdbc.pool.minSize", "0");
+        Connection physical;
+        try (Connection keep = pool.getConnection()) {
+            try (Connection con = pool.getConnection()) {
+                physical = con.unwrap(Connection.class);
+            }
+            // broken while it is idle in the pool
+            physical.close();
+            try (Connection con = pool.getConnection()) {
+                assertNotSame(physical, con.unwrap(Connection.class));
+                assertEquals(1, count(con, "select 1"));
+            }
+        }
+    }
+
+    @Test
+    void minSizeConnectionsAreOpenedUpFront() throws Exception {
+        createPool("jdbc.pool.minSize", "3", "jdbc.pool.maxSize", "2");
+        try (Connection con = pool.getConnection()) {
+            // minSize is bounded by maxSize
+            assertEquals(2, count(con, "select count(*) from INFORMATION_SCHEMA.SESSIONS"));
+        }
+    }
+
+    @Test
+    void closedPoolRejectsBorrowers() throws Exception {
+        createPool();
+        Connection con = pool.getConnection();
+        Connection physical = con.unwrap(Connection.class);
+        pool.close();
+        assertThrows(SQLException.class, pool::getConnection);
+        // a connection returned after the pool has been closed is closed
+        con.close();
+        assertTrue(physical.isClosed());
+    }
+
+    private static int count(Connection con, String sql) throws SQLException {
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
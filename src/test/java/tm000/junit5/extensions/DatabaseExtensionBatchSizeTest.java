@@ -0,0 +1,62 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+public class DatabaseExtensionBatchSizeTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = { "0", "-1", "x" })
+    void invalidBatchSizeIsRejected(String batchSize) {
+        TestExecutionSummary summary = run(batchSize);
+        assertEquals(1, summary.getTotalFailureCount());
+        Throwable failure = summary.getFailures().get(0).getException();
+        assertEquals(ExtensionConfigurationException.class, failure.getClass());
+        assertTrue(failure.getMessage().contains("jdbc.batch.size"), failure.getMessage());
+    }
+
+    @Test
+    void batchSizeOfOne() {
+        TestExecutionSummary summary = run("1");
+        assertEquals(0, summary.getTotalFailureCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+    }
+
+    private static TestExecutionSummary run(String batchSize) {
+        SummaryGeneratingListener listener = new SummaryGeneratingListener();
+        LauncherFactory.create().execute(LauncherDiscoveryRequestBuilder.request()
+            .selectors(DiscoverySelectors.selectClass(ScriptClass.class))
+            .configurationParameter("jdbc.url", "jdbc:h2:mem:batch" + System.nanoTime() + ";DB_CLOSE_DELAY=-1")
+            .configurationParameter("jdbc.batch.size", batchSize)
+            .build(), listener);
+        return listener.getSummary();
+    }
+
+    /**
+     * run by the launcher with jdbc.batch.size of each test
+     */
+    @ExtendWith(DatabaseExtension.class)
+    static class ScriptClass {
+        @Test
+        @ExecuteSql(resource = "schema.sql")
+        void test(Connection con) throws SQLException {
+            var rs = con.prepareStatement("select count(*) from EMPLOYEE").executeQuery();
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+}
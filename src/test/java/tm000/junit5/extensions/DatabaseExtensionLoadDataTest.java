@@ -0,0 +1,87 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+/**
+ * @LoadData on the databases other than H2, which bind the values of the CSV to a batched PreparedStatement
+ */
+public class DatabaseExtensionLoadDataTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = { "jdbc:hsqldb:mem:load%d", "jdbc:derby:memory:load%d;create=true" })
+    void loadDataByPreparedStatement(String url) {
+        SummaryGeneratingListener listener = new SummaryGeneratingListener();
+        LauncherFactory.create().execute(LauncherDiscoveryRequestBuilder.request()
+            .selectors(DiscoverySelectors.selectClass(LoadDataClass.class))
+            .configurationParameter("jdbc.url", String.format(url, System.nanoTime()))
+            // the batches are flushed in the loop of the rows
+            .configurationParameter("jdbc.batch.size", "2")
+            .build(), listener);
+        TestExecutionSummary summary = listener.getSummary();
+        summary.getFailures().forEach(failure -> {
+            throw new AssertionError(failure.getTestIdentifier().getDisplayName(), failure.getException());
+        });
+        assertEquals(1, summary.getTestsSucceededCount());
+    }
+
+    /**
+     * run by the launcher on the database of each test
+     */
+    @ExtendWith(DatabaseExtension.class)
+    static class LoadDataClass {
+        @Test
+        @ExecuteSql("create table EMPLOYEE (EmployeeID int, FirstName VARCHAR(255), LastName VARCHAR(255), Email VARCHAR(255), AddressLine VARCHAR(255), City VARCHAR(255))")
+        @ExecuteSql("create table TODO (id int, todo VARCHAR(100) NOT NULL, start DATE, done BOOLEAN)")
+        @LoadData(table = "EMPLOYEE", resource = "employees.csv")
+        @LoadData(table = "TODO", resource = "todo.tsv", delimiter = "\t")
+        void test(Connection con) throws SQLException {
+            ResultSet rs = con.prepareStatement("select EmployeeID, FirstName, LastName, Email, AddressLine, City from EMPLOYEE order by EmployeeID").executeQuery();
+            assertTrue(rs.next());
+            assertEquals(5, rs.getInt(1));
+            assertEquals("firstname5", rs.getString(2));
+            assertEquals("test5@example.com", rs.getString(4));
+            // the quoted delimiter is a part of the value
+            assertEquals("address5, room 2", rs.getString(5));
+            assertEquals("city5", rs.getString(6));
+            assertTrue(rs.next());
+            assertEquals(6, rs.getInt(1));
+            // the escaped quotes, an empty field as NULL and a quoted empty string
+            assertEquals("first \"6\"", rs.getString(2));
+            assertNull(rs.getString(4));
+            assertEquals("", rs.getString(5));
+            assertEquals("city6", rs.getString(6));
+            assertFalse(rs.next());
+
+            rs = con.prepareStatement("select id, todo, start, done from TODO order by id").executeQuery();
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertEquals("clean my room", rs.getString(2));
+            assertEquals(Date.valueOf("2021-09-05"), rs.getDate(3));
+            assertFalse(rs.getBoolean(4));
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertEquals("wash my T shirts", rs.getString(2));
+            assertEquals(Date.valueOf("2021-09-08"), rs.getDate(3));
+            assertTrue(rs.getBoolean(4));
+            assertFalse(rs.next());
+        }
+    }
+}
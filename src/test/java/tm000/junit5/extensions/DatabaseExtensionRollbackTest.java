@@ -0,0 +1,50 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(DatabaseExtension.class)
+@DatabaseIsolation(IsolationMode.ROLLBACK)
+public class DatabaseExtensionRollbackTest {
+
+    @BeforeAll
+    @ExecuteSql(resource="schema.sql")
+    static void beforeall() {
+    }
+
+    @BeforeEach
+    @ExecuteSql("insert into EMPLOYEE values(10, 'firstname10', 'lastname10', 'test10@example.com', 'address10', 'city10')")
+    void beforeeach() {
+    }
+
+    @Test
+    @ExecuteSql("insert into EMPLOYEE values(1, 'firstname1', 'lastname1', 'test1@example.com', 'address1', 'city1')")
+    @ExecuteSql("insert into EMPLOYEE values(2, 'firstname2', 'lastname2', 'test2@example.com', 'address2', 'city2')")
+    void test001(Connection con) throws SQLException {
+        var rs = con.prepareStatement("select count(*) from EMPLOYEE").executeQuery();
+        rs.next();
+        assertEquals(3, rs.getInt(1));
+        con.prepareStatement("delete from EMPLOYEE where EmployeeID = 10").executeUpdate();
+    }
+
+    @Test
+    @ExecuteSql("insert into TODO values(1, 'clean my room', '2021-09-05', false)")
+    void test002(Connection con) throws SQLException {
+        var rs = con.prepareStatement("select EmployeeID from EMPLOYEE").executeQuery();
+        assertTrue(rs.next());
+        assertEquals(10, rs.getInt(1));
+        assertFalse(rs.next());
+        rs = con.prepareStatement("select todo from TODO").executeQuery();
+        assertTrue(rs.next());
+        assertEquals("clean my room", rs.getString(1));
+    }
+}
@@ -0,0 +1,53 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(DatabaseExtension.class)
+@DatabaseSnapshot
+public class DatabaseExtensionSnapshotTest {
+
+    private Connection getConnection() throws SQLException, IOException {
+        Properties prop = new Properties();
+        prop.load(getClass().getClassLoader().getResourceAsStream("testdb.properties"));
+        return DriverManager.getConnection(prop.getProperty("jdbc.url"), prop.getProperty("jdbc.username"), prop.getProperty("jdbc.password"));
+    }
+
+    @BeforeAll
+    @ExecuteSql(resource="schema.sql")
+    static void beforeall() {
+    }
+
+    @BeforeEach
+    @ExecuteSql("insert into EMPLOYEE values(10, 'firstname10', 'lastname10', 'test10@example.com', 'address10', 'city10')")
+    @ExecuteSql("insert into TODO values(1, 'clean my room', '2021-09-05', false)")
+    void beforeeach() {
+    }
+
+    @RepeatedTest(3)
+    void test001() throws SQLException, IOException {
+        try (var con = getConnection()) {
+            var rs = con.prepareStatement("select count(*) from EMPLOYEE").executeQuery();
+            rs.next();
+            assertEquals(1, rs.getInt(1));
+            rs = con.prepareStatement("select todo from TODO").executeQuery();
+            rs.next();
+            assertEquals("clean my room", rs.getString(1));
+            // the identity column is restored too
+            con.prepareStatement("insert into TODO (todo) values('wash my T shirts')").executeUpdate();
+            rs = con.prepareStatement("select id from TODO where todo = 'wash my T shirts'").executeQuery();
+            rs.next();
+            assertEquals(2, rs.getInt(1));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package tm000.junit5.extensions;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -80,4 +81,46 @@ public class DatabaseExtensionTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    @ExecuteSql(resource="seed.sql")
+    void test003(TestReporter testReporter) {
+        try (var con = getConnection()) {
+            var rs = con.prepareStatement("select FirstName, AddressLine from EMPLOYEE where EmployeeID > 2 order by EmployeeID").executeQuery();
+            rs.next();
+            assertEquals("address3; room 1", rs.getString(2));
+            rs.next();
+            assertEquals("first'name4", rs.getString(1));
+            assertEquals("-- not a comment", rs.getString(2));
+            rs = con.prepareStatement("select todo from TODO").executeQuery();
+            rs.next();
+            assertEquals("buy /* milk */", rs.getString(1));
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @LoadData(table="EMPLOYEE", resource="employees.csv")
+    @LoadData(table="TODO", resource="todo.tsv", delimiter="\t")
+    void test004(TestReporter testReporter) {
+        try (var con = getConnection()) {
+            var rs = con.prepareStatement("select FirstName, Email, AddressLine from EMPLOYEE where EmployeeID > 2 order by EmployeeID").executeQuery();
+            rs.next();
+            assertEquals("address5, room 2", rs.getString(3));
+            rs.next();
+            assertEquals("first \"6\"", rs.getString(1));
+            assertNull(rs.getString(2));
+            assertEquals("", rs.getString(3));
+            rs = con.prepareStatement("select * from TODO order by id").executeQuery();
+            rs.next();
+            assertEquals("clean my room", rs.getString(2));
+            assertFalse(rs.getBoolean(4));
+            rs.next();
+            assertEquals("20210908", new SimpleDateFormat("yyyyMMdd").format(rs.getDate(3)));
+            assertTrue(rs.getBoolean(4));
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+        }
+    }
 }
\ No newline at end of file
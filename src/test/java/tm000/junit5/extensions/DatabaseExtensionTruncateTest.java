@@ -0,0 +1,48 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(DatabaseExtension.class)
+@DatabaseIsolation(IsolationMode.TRUNCATE)
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class DatabaseExtensionTruncateTest {
+
+    @BeforeAll
+    @ExecuteSql(resource="schema.sql")
+    @ExecuteSql("insert into EMPLOYEE values(10, 'firstname10', 'lastname10', 'test10@example.com', 'address10', 'city10')")
+    static void beforeall() {
+    }
+
+    @Test
+    @ExecuteSql("insert into EMPLOYEE values(1, 'firstname1', 'lastname1', 'test1@example.com', 'address1', 'city1')")
+    @ExecuteSql("create table WORK(ID int)")
+    void test001(Connection con) throws SQLException {
+        assertEquals(2, count(con, "EMPLOYEE"));
+        con.prepareStatement("insert into TODO values(1, 'clean my room', '2021-09-05', false)").executeUpdate();
+        con.commit();
+    }
+
+    @Test
+    void test002(Connection con) throws SQLException {
+        assertEquals(1, count(con, "EMPLOYEE"));
+        assertEquals(0, count(con, "TODO"));
+        var rs = con.prepareStatement("select count(*) from INFORMATION_SCHEMA.TABLES where TABLE_NAME = 'WORK'").executeQuery();
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+    }
+
+    private static int count(Connection con, String table) throws SQLException {
+        var rs = con.prepareStatement("select count(*) from " + table).executeQuery();
+        rs.next();
+        return rs.getInt(1);
+    }
+}
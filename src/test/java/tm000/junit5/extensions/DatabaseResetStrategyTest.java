@@ -0,0 +1,145 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Runs the built-in strategies against in-memory databases of each engine
+ */
+public class DatabaseResetStrategyTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = { "h2", "hsqldb", "derby", "sqlite" })
+    void truncate(String engine) throws SQLException {
+        try (Connection con = open(engine)) {
+            DatabaseResetStrategy strategy = new ResetStrategies().find(con);
+            assertNotNull(strategy);
+            createTables(con, engine);
+            strategy.truncate(con, List.of("PARENT", "CHILD"));
+            con.commit();
+            assertEquals(0, count(con, "PARENT"));
+            assertEquals(0, count(con, "CHILD"));
+            // the foreign keys are checked again after the truncate
+            try (Statement statement = con.createStatement()) {
+                assertTrue(fails(statement, "insert into CHILD(PARENT_ID) values(99)"));
+                con.rollback();
+                statement.executeUpdate("insert into PARENT(NAME) values('c')");
+                con.commit();
+            }
+            assertEquals(1, firstId(con));
+            con.commit();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "h2", "hsqldb", "derby", "sqlite" })
+    void reset(String engine) throws SQLException {
+        try (Connection con = open(engine)) {
+            DatabaseResetStrategy strategy = new ResetStrategies().find(con);
+            createTables(con, engine);
+            try (Statement statement = con.createStatement()) {
+                statement.execute("create view PARENT_NAMES as select NAME from PARENT");
+                con.commit();
+            }
+            strategy.reset(con);
+            con.commit();
+            try (Statement statement = con.createStatement()) {
+                assertTrue(fails(statement, "select count(*) from PARENT"));
+                con.rollback();
+                assertTrue(fails(statement, "select count(*) from PARENT_NAMES"));
+                con.rollback();
+            }
+            // the schema can be created again
+            createTables(con, engine);
+            assertEquals(2, count(con, "PARENT"));
+            con.commit();
+        }
+    }
+
+    private static Connection open(String engine) throws SQLException {
+        String url;
+        switch (engine) {
+        case "h2":
+            url = "jdbc:h2:mem:reset" + System.nanoTime();
+            break;
+        case "hsqldb":
+            url = "jdbc:hsqldb:mem:reset" + System.nanoTime();
+            break;
+        case "derby":
+            url = "jdbc:derby:memory:reset" + System.nanoTime() + ";create=true";
+            break;
+        default:
+            url = "jdbc:sqlite::memory:";
+            break;
+        }
+        Connection con = DriverManager.getConnection(url, "sa", "");
+        if ("sqlite".equals(engine)) {
+            // the pragma is ignored inside a transaction
+            try (Statement statement = con.createStatement()) {
+                statement.execute("PRAGMA foreign_keys = ON");
+            }
+        }
+        con.setAutoCommit(false);
+        return con;
+    }
+
+    private static void createTables(Connection con, String engine) throws SQLException {
+        String identity;
+        switch (engine) {
+        case "sqlite":
+            identity = "INTEGER PRIMARY KEY AUTOINCREMENT";
+            break;
+        case "derby":
+            identity = "INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY";
+            break;
+        default:
+            identity = "INT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY";
+            break;
+        }
+        try (Statement statement = con.createStatement()) {
+            statement.execute("create table PARENT(ID " + identity + ", NAME varchar(10))");
+            statement.execute("create table CHILD(ID " + identity + ", PARENT_ID int references PARENT(ID))");
+            statement.executeUpdate("insert into PARENT(NAME) values('a')");
+            statement.executeUpdate("insert into PARENT(NAME) values('b')");
+            statement.executeUpdate("insert into CHILD(PARENT_ID) values(1)");
+        }
+        con.commit();
+    }
+
+    private static boolean fails(Statement statement, String sql) {
+        try {
+            statement.execute(sql);
+            return false;
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static int count(Connection con, String table) throws SQLException {
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery("select count(*) from " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static int firstId(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery("select min(ID) from PARENT")) {
+            assertTrue(rs.next());
+            int id = rs.getInt(1);
+            assertFalse(rs.wasNull());
+            return id;
+        }
+    }
+}
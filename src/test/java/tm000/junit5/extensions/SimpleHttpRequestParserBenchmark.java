@@ -0,0 +1,92 @@
+package tm000.junit5.extensions;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the byte level parser with the former regex parser, which compiled the pattern on every call.
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test.classpath
+ * java -cp target/test-classes:target/classes:$(cat target/test.classpath) org.openjdk.jmh.Main SimpleHttpRequestParserBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleHttpRequestParserBenchmark {
+    static final String REQUEST = "POST /api/employees?dept=sales&page=2 HTTP/1.1\r\n"
+        + "Host: localhost:9000\r\n"
+        + "User-Agent: Apache-HttpClient/4.5.13 (Java/11)\r\n"
+        + "Accept: application/json\r\n"
+        + "Content-Type: application/json\r\n"
+        + "Content-Length: 27\r\n"
+        + "\r\n"
+        + "{\"id\":1,\"name\":\"Yamada\"}\r\n";
+
+    String input;
+    ByteBuffer heapBuffer;
+    ByteBuffer directBuffer;
+    SimpleHttpRequestParser parser;
+
+    @Setup
+    public void setup() {
+        input = REQUEST;
+        byte[] bytes = REQUEST.getBytes(StandardCharsets.UTF_8);
+        heapBuffer = ByteBuffer.wrap(bytes);
+        directBuffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        parser = new SimpleHttpRequestParser();
+    }
+
+    @Benchmark
+    public SimpleHttpRequest regex() {
+        SimpleHttpRequest req = new SimpleHttpRequest();
+        Pattern pattern = Pattern.compile("(OPTIONS|GET|HEAD|POST|PUT|DELETE|TRACE|CONNECT)\\s([^\\s]+)\\sHTTP/1.1\\b");
+        Matcher matcher = pattern.matcher(input);
+        if (matcher.find()) {
+            req.method(matcher.group(1));
+            req.url(matcher.group(2));
+            req.protocol("HTTP/1.1");
+            return req;
+        } else {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public SimpleHttpRequest heapBuffer() {
+        return parser.parse(heapBuffer);
+    }
+
+    @Benchmark
+    public SimpleHttpRequest directBuffer() {
+        return parser.parse(directBuffer);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(SimpleHttpRequestParserBenchmark.class.getSimpleName())
+            .addProfiler("gc")
+            .build()).run();
+    }
+}
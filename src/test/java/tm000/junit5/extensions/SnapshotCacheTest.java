@@ -0,0 +1,48 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SnapshotCacheTest {
+
+    @ExecuteSql(resource = "snapshot-key.sql")
+    @LoadData(table = "EMPLOYEE", resource = "snapshot-key.csv")
+    void annotated() {
+    }
+
+    @Test
+    void keyChangesWithTheResources() throws Exception {
+        // the resources are written into the classpath root of the tests
+        Path root = Paths.get(getClass().getResource("/testdb.properties").toURI()).getParent();
+        Path sql = root.resolve("snapshot-key.sql");
+        Path csv = root.resolve("snapshot-key.csv");
+        List<Annotation> annotations = List.of(
+            getClass().getDeclaredMethod("annotated").getAnnotation(ExecuteSql.class),
+            getClass().getDeclaredMethod("annotated").getAnnotation(LoadData.class));
+        try {
+            Files.writeString(sql, "insert into TODO(todo) values('a');", StandardCharsets.UTF_8);
+            Files.writeString(csv, "EmployeeID\n1\n", StandardCharsets.UTF_8);
+            String key = SnapshotCache.key(annotations);
+            assertEquals(key, SnapshotCache.key(annotations));
+
+            Files.writeString(sql, "insert into TODO(todo) values('b');", StandardCharsets.UTF_8);
+            String edited = SnapshotCache.key(annotations);
+            assertNotEquals(key, edited);
+
+            Files.writeString(csv, "EmployeeID\n2\n", StandardCharsets.UTF_8);
+            assertNotEquals(edited, SnapshotCache.key(annotations));
+        } finally {
+            Files.deleteIfExists(sql);
+            Files.deleteIfExists(csv);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package tm000.junit5.extensions;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -8,7 +10,16 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -16,6 +27,7 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 
@@ -31,6 +43,7 @@ import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
@@ -338,4 +351,94 @@ public class WebServerExtensionEnableSecuriyTest {
             httpclient.close();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain")
+    void concurrentHandshakes() throws Exception {
+        SSLContext sslContext = SSLContexts.custom().loadTrustMaterial(new File(KEYSTORE_PATH), PASSWORD.toCharArray()).build();
+        String expected = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: keep-alive\r\nContent-Type: text/plain\r\n\r\nOK";
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String message = "client" + i;
+                responses.add(executor.submit(() -> {
+                    try (SSLSocket socket = (SSLSocket) sslContext.getSocketFactory().createSocket("localhost", 9000)) {
+                        socket.getOutputStream().write(message.getBytes());
+                        byte[] buffer = new byte[expected.length()];
+                        int length = 0;
+                        int read;
+                        while (length < buffer.length && (read = socket.getInputStream().read(buffer, length, buffer.length - length)) != -1) {
+                            length += read;
+                        }
+                        return new String(buffer, 0, length);
+                    }
+                }));
+            }
+            for (Future<String> response : responses) {
+                assertEquals(expected, response.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(20, server.getRequests().size());
+    }
+
+    @Test
+    @SimpleHttpResponse(bodyFile = "target/large-body-tls.bin", contentType = "application/octet-stream")
+    void bodyFile() throws Exception {
+        byte[] body = Files.readAllBytes(Paths.get("target", "large-body-tls.bin"));
+        SSLContext sslContext = SSLContexts.custom().loadTrustMaterial(new File(KEYSTORE_PATH), PASSWORD.toCharArray()).build();
+        try (CloseableHttpClient httpclient = HttpClients.custom().setSSLSocketFactory(new SSLConnectionSocketFactory(sslContext, new NoopHostnameVerifier())).build()) {
+            assertArrayEquals(body, httpclient.execute(new HttpGet("https://localhost:9000/large-body.bin"), response -> EntityUtils.toByteArray(response.getEntity())));
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain")
+    void sessionResumption() throws Exception {
+        String expected = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: keep-alive\r\nContent-Type: text/plain\r\n\r\nOK";
+        for (String protocol : new String[] { "TLSv1.3", "TLSv1.2" }) {
+            SSLContext sslContext = SSLContexts.custom().loadTrustMaterial(new File(KEYSTORE_PATH), PASSWORD.toCharArray()).build();
+            List<SSLSession> sessions = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                try (SSLSocket socket = (SSLSocket) sslContext.getSocketFactory().createSocket("localhost", 9000)) {
+                    socket.setEnabledProtocols(new String[] { protocol });
+                    socket.getOutputStream().write(("GET /" + protocol + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes());
+                    byte[] buffer = new byte[expected.length()];
+                    int length = 0;
+                    int read;
+                    while (length < buffer.length && (read = socket.getInputStream().read(buffer, length, buffer.length - length)) != -1) {
+                        length += read;
+                    }
+                    assertEquals(expected, new String(buffer, 0, length));
+                    sessions.add(socket.getSession());
+                }
+            }
+            assertEquals(protocol, sessions.get(1).getProtocol());
+            // the resumed session keeps the creation time of the full handshake
+            assertEquals(sessions.get(0).getCreationTime(), sessions.get(1).getCreationTime());
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "throttled", contentType = "text/plain", delay = 100, bytesPerSecond = 200)
+    void throttled() throws Exception {
+        SSLContext sslContext = SSLContexts.custom().loadTrustMaterial(new File(KEYSTORE_PATH), PASSWORD.toCharArray()).build();
+        try (CloseableHttpClient httpclient = HttpClients.custom().setSSLSocketFactory(new SSLConnectionSocketFactory(sslContext, new NoopHostnameVerifier())).build()) {
+            long start = System.nanoTime();
+            assertEquals("throttled", httpclient.execute(new HttpGet("https://localhost:9000/"), response -> EntityUtils.toString(response.getEntity())));
+            // the record of more than 100 bytes at 200 bytes/s after the delay
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsed >= 500, String.valueOf(elapsed));
+        }
+        assertTrue(server.metrics().getHandshakeTime().getCount() > 0);
+    }
+
+    @BeforeAll
+    static void createLargeBody() throws IOException {
+        byte[] body = new byte[1024 * 1024 + 7];
+        new Random(0).nextBytes(body);
+        Files.write(Paths.get("target", "large-body-tls.bin"), body);
+    }
+}
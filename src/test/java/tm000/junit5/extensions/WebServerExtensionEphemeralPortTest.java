@@ -0,0 +1,33 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class WebServerExtensionEphemeralPortTest {
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .port(0)
+        .build();
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain")
+    void resolveBaseUri(URI baseUri, InetSocketAddress address) throws Exception {
+        assertNotEquals(0, server.getPort());
+        assertEquals(server.getPort(), address.getPort());
+        assertEquals(URI.create("http://localhost:" + server.getPort()), baseUri);
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            assertEquals("OK", httpclient.execute(new HttpGet(baseUri + "/ping"), response -> EntityUtils.toString(response.getEntity())));
+        }
+        assertEquals("/ping", server.getHttpRequests().get(0).getPath());
+    }
+}
@@ -0,0 +1,192 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class WebServerExtensionFaultInjectionTest {
+    private static final String BODY = "0123456789".repeat(5000);
+
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .workerThreads(1)
+        .build();
+
+    @Test
+    @SimpleHttpResponse(value = "slow", contentType = "text/plain", delay = 300, delayMax = 400)
+    void delay() throws Exception {
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            long start = System.nanoTime();
+            assertEquals("slow", httpclient.execute(new HttpGet("http://localhost:9000/"), response -> EntityUtils.toString(response.getEntity())));
+            assertTrue((System.nanoTime() - start) / 1_000_000 >= 300);
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "slow", contentType = "text/plain", delay = 1000)
+    void delayedResponsesDoNotBlockEachOther() throws Exception {
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                Socket socket = new Socket("localhost", 9000);
+                socket.setSoTimeout(10000);
+                socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                sockets.add(socket);
+            }
+            for (Socket socket : sockets) {
+                assertTrue(readResponse(socket, "slow".length()).endsWith("slow"));
+            }
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            // one worker thread answers all of them after about one delay
+            assertTrue(elapsed >= 1000 && elapsed < 5000, String.valueOf(elapsed));
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void notThrottledByDefault() throws Exception {
+        server.when(RequestMatcher.get("/throttled")).respond(BODY);
+        try (Socket socket = new Socket("localhost", 9000)) {
+            long start = System.nanoTime();
+            socket.getOutputStream().write("GET /throttled HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readResponse(socket, BODY.length()).endsWith(BODY));
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 1000);
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(path = "/throttled", value = BODY_VALUE, contentType = "text/plain", bytesPerSecond = 1000)
+    void bytesPerSecond() throws Exception {
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            long start = System.nanoTime();
+            String body = httpclient.execute(new HttpGet("http://localhost:9000/throttled"), response -> EntityUtils.toString(response.getEntity()));
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(BODY_VALUE, body);
+            // 300 bytes at 1000 bytes/s
+            assertTrue(elapsed >= 250, String.valueOf(elapsed));
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "reset", contentType = "text/plain", fault = ResponseFault.CONNECTION_RESET)
+    void connectionReset() throws Exception {
+        try (Socket socket = new Socket("localhost", 9000)) {
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertThrows(SocketException.class, () -> socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(value = BODY_VALUE, contentType = "text/plain", fault = ResponseFault.PARTIAL_RESPONSE)
+    void partialResponse() throws Exception {
+        try (Socket socket = new Socket("localhost", 9000)) {
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            String response = readToEnd(socket);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(response.contains("Content-Length: " + BODY_VALUE.length()));
+            assertTrue(response.length() < BODY_VALUE.length(), String.valueOf(response.length()));
+        }
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            assertThrows(IOException.class, () -> httpclient.execute(new HttpGet("http://localhost:9000/"), response -> EntityUtils.toString(response.getEntity())));
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "dropped", contentType = "text/plain", fault = ResponseFault.DROP_KEEP_ALIVE)
+    void dropKeepAlive() throws Exception {
+        try (Socket socket = new Socket("localhost", 9000)) {
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            String response = readToEnd(socket);
+            assertTrue(response.contains("Connection: keep-alive"));
+            assertTrue(response.endsWith("dropped"));
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "flaky", contentType = "text/plain", fault = ResponseFault.CONNECTION_RESET, faultRate = 0.5)
+    void faultRate() throws Exception {
+        int faults = 0;
+        for (int i = 0; i < 100; i++) {
+            try (Socket socket = new Socket("localhost", 9000)) {
+                socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                readResponse(socket, "flaky".length());
+            } catch (SocketException e) {
+                faults++;
+            }
+        }
+        assertTrue(faults > 10 && faults < 90, String.valueOf(faults));
+    }
+
+    @Test
+    void builderDefaults() throws Exception {
+        for (boolean virtualThreads : new boolean[] { false, true }) {
+            WebServerExtension slow = WebServerExtension.builder()
+                .port(0)
+                .virtualThreads(virtualThreads)
+                .delay(200)
+                .bytesPerSecond(100_000)
+                .build();
+            slow.beforeAll(null);
+            try (Socket socket = new Socket("localhost", slow.getPort())) {
+                slow.when(RequestMatcher.get("/")).respond(BODY);
+                long start = System.nanoTime();
+                socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                assertTrue(readResponse(socket, BODY.length()).endsWith(BODY));
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                // the delay and 50KB at 100KB/s
+                assertTrue(elapsed >= 650, virtualThreads + ": " + elapsed);
+            } finally {
+                slow.afterAll(null);
+            }
+        }
+    }
+
+    private static final String BODY_VALUE = "0123456789012345678901234567890123456789012345678901234567890123456789012345678901234567890123456789"
+            + "0123456789012345678901234567890123456789012345678901234567890123456789012345678901234567890123456789"
+            + "0123456789012345678901234567890123456789012345678901234567890123456789012345678901234567890123456789";
+
+    /**
+     * read the response up to the end of the body of the length
+     */
+    private static String readResponse(Socket socket, int bodyLength) throws IOException {
+        InputStream in = socket.getInputStream();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int header = -1;
+        while (header < 0 || received.size() < header + 4 + bodyLength) {
+            int count = in.read(buffer);
+            if (count < 0) {
+                break;
+            }
+            received.write(buffer, 0, count);
+            header = received.toString(StandardCharsets.US_ASCII).indexOf("\r\n\r\n");
+        }
+        return received.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String readToEnd(Socket socket) throws IOException {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        socket.getInputStream().transferTo(received);
+        return received.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,52 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class WebServerExtensionFileBodyTest {
+    static final Path LARGE_BODY = Paths.get("target", "large-body.bin");
+
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .build();
+
+    @BeforeAll
+    static void createLargeBody() throws IOException {
+        byte[] body = new byte[8 * 1024 * 1024 + 7];
+        new Random(0).nextBytes(body);
+        Files.write(LARGE_BODY, body);
+    }
+
+    @Test
+    @SimpleHttpResponse(bodyFile = "target/large-body.bin", contentType = "application/octet-stream")
+    void bodyFile() throws Exception {
+        assertArrayEquals(Files.readAllBytes(LARGE_BODY), get("http://localhost:9000/large-body.bin"));
+    }
+
+    @Test
+    @SimpleHttpResponse(bodyResource = "employees.csv", contentType = "text/csv")
+    @SimpleHttpResponse(bodyResource = "todo.tsv", contentType = "text/tab-separated-values", keepalive = false)
+    void bodyResource() throws Exception {
+        assertArrayEquals(Files.readAllBytes(Paths.get("src/test/resources/employees.csv")), get("http://localhost:9000/employees.csv"));
+        assertArrayEquals(Files.readAllBytes(Paths.get("src/test/resources/todo.tsv")), get("http://localhost:9000/todo.tsv"));
+    }
+
+    private byte[] get(String uri) throws IOException {
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            return httpclient.execute(new HttpGet(uri), response -> EntityUtils.toByteArray(response.getEntity()));
+        }
+    }
+}
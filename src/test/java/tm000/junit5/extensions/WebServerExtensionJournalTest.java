@@ -0,0 +1,90 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class WebServerExtensionJournalTest {
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .journalCapacity(4)
+        .build();
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain")
+    void ringKeepsLatestRequests() throws Exception {
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            for (int i = 0; i < 10; i++) {
+                get(httpclient, "http://localhost:9000/" + (i % 2 == 0 ? "even" : "odd") + "?i=" + i);
+            }
+        }
+        RequestJournal journal = server.getJournal();
+        assertEquals(10, journal.getReceived());
+        assertEquals(5, journal.countByPath("/even"));
+        assertEquals(5, journal.countByPath("/odd"));
+        List<SimpleHttpRequest> requests = server.getHttpRequests();
+        assertEquals(4, requests.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(String.valueOf(i + 6), requests.get(i).getQueryParameter("i"));
+        }
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain")
+    void awaitRequests() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+                    Thread.sleep(100);
+                    for (int i = 0; i < 3; i++) {
+                        get(httpclient, "http://localhost:9000/async");
+                    }
+                }
+                return null;
+            });
+            assertTrue(server.getJournal().awaitRequests(3, Duration.ofSeconds(10)));
+            assertFalse(server.getJournal().awaitRequests(4, Duration.ofMillis(100)));
+            assertEquals(3, server.getJournal().countByPath("/async"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void sampledAndOff() {
+        RequestJournal sampled = new RequestJournal(RequestRetention.SAMPLED, 100, 10);
+        RequestJournal off = new RequestJournal(RequestRetention.OFF, 100, 10);
+        for (int i = 0; i < 1000; i++) {
+            SimpleHttpRequest request = new SimpleHttpRequest().path("/soak").text(String.valueOf(i));
+            sampled.record(request);
+            off.record(request);
+        }
+        assertEquals(1000, sampled.getReceived());
+        assertEquals(1000, sampled.countByPath("/soak"));
+        List<SimpleHttpRequest> requests = sampled.getRequests();
+        // every 10th request is kept and the ring of 128 slots has the latest 100 of them
+        assertEquals(100, requests.size());
+        assertEquals("990", requests.get(requests.size() - 1).getText());
+        assertEquals(1000, off.getReceived());
+        assertEquals(1000, off.countByPath("/soak"));
+        assertTrue(off.getRequests().isEmpty());
+    }
+
+    private static void get(CloseableHttpClient httpclient, String uri) throws IOException {
+        httpclient.execute(new HttpGet(uri), response -> EntityUtils.toString(response.getEntity()));
+    }
+}
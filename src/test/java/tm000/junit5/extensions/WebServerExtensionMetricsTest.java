@@ -0,0 +1,79 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class WebServerExtensionMetricsTest {
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .workerThreads(2)
+        .build();
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain", delay = 20)
+    void requestsAndLatency() throws Exception {
+        ServerMetrics before = server.metrics();
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            for (int i = 0; i < 20; i++) {
+                assertEquals("OK", httpclient.execute(new HttpGet("http://localhost:9000/metrics"), response -> EntityUtils.toString(response.getEntity())));
+            }
+        }
+        // the latency is recorded by the server thread after the client has received the last byte
+        ServerMetrics metrics = awaitResponses(before, 20, Duration.ofSeconds(10));
+        assertEquals(20, metrics.getRequests());
+        assertTrue(metrics.getRequestsPerSecond() > 0);
+        assertEquals(20, metrics.getLatency().getCount());
+        assertTrue(metrics.getLatency().getValueAtPercentile(50).compareTo(Duration.ofMillis(20)) >= 0, metrics.toString());
+        assertTrue(metrics.getLatency().getMax().compareTo(Duration.ofSeconds(5)) < 0, metrics.toString());
+        assertTrue(metrics.getBytesIn() > 20 * "GET /metrics HTTP/1.1\r\n".length());
+        assertTrue(metrics.getBytesOut() > 20 * "HTTP/1.1 200 OK\r\n".length());
+        assertEquals(1, metrics.getTotalConnections());
+        assertEquals(0, metrics.getHandshakeTime().getCount());
+        Map<String, String> entry = metrics.toReportEntry();
+        assertEquals("20", entry.get("requests"));
+        assertTrue(entry.containsKey("latencyP99"));
+    }
+
+    @Test
+    void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertWithinOnePercent(50_000_000, histogram.getValueAtPercentile(50));
+        assertWithinOnePercent(99_000_000, histogram.getValueAtPercentile(99));
+        assertWithinOnePercent(99_900_000, histogram.getValueAtPercentile(99.9));
+        assertWithinOnePercent(100_000_000, histogram.getMax());
+        assertEquals(50_000_500, histogram.getMean().toNanos());
+        LatencyHistogram earlier = histogram.snapshot();
+        histogram.record(5);
+        LatencyHistogram diff = histogram.since(earlier);
+        assertEquals(1, diff.getCount());
+        assertEquals(5, diff.getMax().toNanos());
+    }
+
+    private static ServerMetrics awaitResponses(ServerMetrics before, long count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        ServerMetrics metrics = server.metrics().since(before);
+        while (metrics.getLatency().getCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            metrics = server.metrics().since(before);
+        }
+        return metrics;
+    }
+
+    private static void assertWithinOnePercent(long expected, Duration actual) {
+        assertTrue(Math.abs(actual.toNanos() - expected) <= expected / 100, expected + " " + actual.toNanos());
+    }
+}
@@ -0,0 +1,185 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class WebServerExtensionPipeliningTest {
+    static final String GET = "GET /%s HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .build();
+
+    @Test
+    @SimpleHttpResponse(value = "one", contentType = "text/plain")
+    @SimpleHttpResponse(value = "two", contentType = "text/plain")
+    @SimpleHttpResponse(value = "three", contentType = "text/plain")
+    void pipelinedRequests() throws Exception {
+        try (Socket socket = new Socket("localhost", 9000)) {
+            write(socket, String.format(GET, "1") + String.format(GET, "2") + String.format(GET, "3"));
+            InputStream in = socket.getInputStream();
+            assertEquals(response("one"), read(in, response("one").length()));
+            assertEquals(response("two"), read(in, response("two").length()));
+            assertEquals(response("three"), read(in, response("three").length()));
+        }
+        assertEquals(List.of(String.format(GET, "1").trim(), String.format(GET, "2").trim(), String.format(GET, "3").trim()),
+            server.getRequests());
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "posted", contentType = "text/plain")
+    @SimpleHttpResponse(value = "chunked", contentType = "text/plain")
+    void requestsSplitAcrossReads() throws Exception {
+        String post = "POST /data HTTP/1.1\r\nHost: localhost\r\nContent-Length: 11\r\n\r\nhello world";
+        String chunked = "PUT /data HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n";
+        try (Socket socket = new Socket("localhost", 9000)) {
+            InputStream in = socket.getInputStream();
+            write(socket, post.substring(0, 20));
+            Thread.sleep(50);
+            write(socket, post.substring(20, post.length() - 3));
+            Thread.sleep(50);
+            write(socket, post.substring(post.length() - 3) + chunked.substring(0, chunked.length() - 10));
+            assertEquals(response("posted"), read(in, response("posted").length()));
+            Thread.sleep(50);
+            write(socket, chunked.substring(chunked.length() - 10));
+            assertEquals(response("chunked"), read(in, response("chunked").length()));
+        }
+        assertEquals(List.of(post, chunked.trim()), server.getRequests());
+        SimpleHttpRequest request = server.getHttpRequests().get(1);
+        assertEquals("PUT", request.getMethod());
+        assertEquals("/data", request.getPath());
+        assertEquals("chunked", request.getHeader("transfer-encoding"));
+        assertEquals("hello world", request.getBodyAsString());
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "found", contentType = "text/plain")
+    void parsedRequest() throws Exception {
+        String get = "GET /search?q=junit+5&lang=ja&lang=en&empty HTTP/1.1\r\nHost: localhost\r\nAccept: text/plain\r\n\r\n";
+        try (Socket socket = new Socket("localhost", 9000)) {
+            write(socket, get);
+            assertEquals(response("found"), read(socket.getInputStream(), response("found").length()));
+        }
+        SimpleHttpRequest request = server.getHttpRequests().get(0);
+        assertEquals("GET", request.getMethod());
+        assertEquals("/search?q=junit+5&lang=ja&lang=en&empty", request.getUrl());
+        assertEquals("/search", request.getPath());
+        assertEquals("HTTP/1.1", request.getProtocol());
+        assertEquals("junit 5", request.getQueryParameter("q"));
+        assertEquals(List.of("ja", "en"), request.getQueryParameters().get("lang"));
+        assertEquals("", request.getQueryParameter("empty"));
+        assertEquals("localhost", request.getHeader("Host"));
+        assertEquals(0, request.getBody().length);
+        assertEquals(get.trim(), request.getText());
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "found", contentType = "text/plain")
+    void brokenEscapeKeepsTheRawValue() throws Exception {
+        try (Socket socket = new Socket("localhost", 9000)) {
+            socket.setSoTimeout(10000);
+            write(socket, "GET /a?x=100%&y=%zz&z=%41 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(response("found"), read(socket.getInputStream(), response("found").length()));
+        }
+        SimpleHttpRequest request = server.getHttpRequests().get(0);
+        assertEquals("100%", request.getQueryParameter("x"));
+        assertEquals("%zz", request.getQueryParameter("y"));
+        assertEquals("A", request.getQueryParameter("z"));
+        // the worker still serves the other connections
+        assertAnswered();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "-5", "abc", "12abc", "99999999999" })
+    @SimpleHttpResponse(value = "found", contentType = "text/plain")
+    void invalidContentLengthIsRejected(String contentLength) throws Exception {
+        String badRequest = "HTTP/1.1 400 Bad Request\r\nContent-Length: 11\r\nConnection: close\r\nContent-Type: text/plain\r\n\r\nBad Request";
+        try (Socket socket = new Socket("localhost", 9000)) {
+            socket.setSoTimeout(10000);
+            write(socket, "POST /data HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + contentLength + "\r\n\r\nhello"
+                + String.format(GET, "ignored"));
+            InputStream in = socket.getInputStream();
+            assertEquals(badRequest, read(in, badRequest.length()));
+            // the rest of the bytes can not be framed, and the connection is closed
+            assertEquals(-1, in.read());
+        }
+        assertTrue(server.getRequests().isEmpty(), server.getRequests().toString());
+        assertAnswered();
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "found", contentType = "text/plain")
+    void finalCodingDecidesChunked() throws Exception {
+        String chunked = "POST /data HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: gzip, chunked\r\n\r\n5\r\nhello\r\n0\r\n\r\n";
+        try (Socket socket = new Socket("localhost", 9000)) {
+            socket.setSoTimeout(10000);
+            write(socket, chunked + String.format(GET, "next"));
+            InputStream in = socket.getInputStream();
+            assertEquals(response("found"), read(in, response("found").length()));
+            assertEquals(response("found"), read(in, response("found").length()));
+        }
+        // the framer and the parser agree on the end of the chunked body
+        assertEquals(List.of(chunked.trim(), String.format(GET, "next").trim()), server.getRequests());
+        assertEquals("hello", server.getHttpRequests().get(0).getBodyAsString());
+
+        // chunked which is not the final coding does not frame the body
+        String badRequest = "HTTP/1.1 400 Bad Request\r\nContent-Length: 11\r\nConnection: close\r\nContent-Type: text/plain\r\n\r\nBad Request";
+        try (Socket socket = new Socket("localhost", 9000)) {
+            socket.setSoTimeout(10000);
+            write(socket, chunked.replace("gzip, chunked", "chunked, gzip"));
+            InputStream in = socket.getInputStream();
+            assertEquals(badRequest, read(in, badRequest.length()));
+            assertEquals(-1, in.read());
+        }
+        assertEquals(2, server.getRequests().size());
+        assertEquals("hello", new SimpleHttpRequestParser().parse(chunked).getBodyAsString());
+        assertEquals("", new SimpleHttpRequestParser().parse(chunked.replace("gzip, chunked", "chunked, gzip")).getBodyAsString());
+        assertAnswered();
+    }
+
+    /**
+     * a new connection is answered after the bad request
+     */
+    private static void assertAnswered() throws IOException {
+        try (Socket socket = new Socket("localhost", 9000)) {
+            socket.setSoTimeout(10000);
+            write(socket, String.format(GET, "next"));
+            assertEquals(response("found"), read(socket.getInputStream(), response("found").length()));
+        }
+    }
+
+    private static String response(String body) {
+        return "HTTP/1.1 200 OK\r\nContent-Length: " + body.length() + "\r\nConnection: keep-alive\r\nContent-Type: text/plain\r\n\r\n" + body;
+    }
+
+    private static void write(Socket socket, String data) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(data.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String read(InputStream in, int size) throws IOException {
+        byte[] buffer = new byte[size];
+        int length = 0;
+        while (length < buffer.length) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,98 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class WebServerExtensionRouterTest {
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .workerThreads(2)
+        .build();
+
+    @BeforeAll
+    static void stubHealth() {
+        server.when(RequestMatcher.get("/health")).respond("UP");
+    }
+
+    @Test
+    @SimpleHttpResponse(method = "GET", path = "/api/users/*", headers = "Accept: application/json", value = "{\"id\":1}", contentType = "application/json")
+    @SimpleHttpResponse(method = "GET", path = "/api/users/*", value = "user", contentType = "text/plain")
+    @SimpleHttpResponse(method = "GET", path = "/api/users/me", value = "me", contentType = "text/plain")
+    @SimpleHttpResponse(method = "POST", path = "/api/users", bodyContains = "Yamada", status = 201, value = "created", contentType = "text/plain")
+    @SimpleHttpResponse(path = "/static/**", value = "static", contentType = "text/plain")
+    @SimpleHttpResponse(value = "first", contentType = "text/plain")
+    @SimpleHttpResponse(value = "other", contentType = "text/plain")
+    void annotationRoutes() throws Exception {
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            assertEquals("user", execute(httpclient, new HttpGet("http://localhost:9000/api/users/1")));
+            assertEquals("me", execute(httpclient, new HttpGet("http://localhost:9000/api/users/me")));
+            HttpGet json = new HttpGet("http://localhost:9000/api/users/2");
+            json.addHeader("Accept", "application/json");
+            assertEquals("{\"id\":1}", execute(httpclient, json));
+            HttpPost post = new HttpPost("http://localhost:9000/api/users");
+            post.setEntity(new StringEntity("{\"name\":\"Yamada\"}"));
+            assertEquals("201:created", httpclient.execute(post, response -> response.getStatusLine().getStatusCode() + ":" + EntityUtils.toString(response.getEntity())));
+            assertEquals("static", execute(httpclient, new HttpGet("http://localhost:9000/static/css/site.css")));
+            assertEquals("UP", execute(httpclient, new HttpGet("http://localhost:9000/health")));
+            // the requests which no route matches are answered in order
+            assertEquals("first", execute(httpclient, new HttpGet("http://localhost:9000/api/users")));
+            assertEquals("other", execute(httpclient, new HttpGet("http://localhost:9000/api/users/1/posts")));
+            assertEquals("other", execute(httpclient, new HttpGet("http://localhost:9000/")));
+        }
+    }
+
+    @Test
+    void programmaticStubs() throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            server.when(RequestMatcher.get("/items/" + i)).respond(200, "text/plain", "item" + i);
+        }
+        server.when(RequestMatcher.request().path("/items/*/detail").header("X-Mode", "*")).respond("detail");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                int item = i * 37;
+                responses.add(executor.submit(() -> execute(httpclient, new HttpGet("http://localhost:9000/items/" + item))));
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals("item" + (i * 37), responses.get(i).get());
+            }
+            HttpGet detail = new HttpGet("http://localhost:9000/items/3/detail");
+            detail.addHeader("X-Mode", "full");
+            assertEquals("detail", execute(httpclient, detail));
+            assertEquals("404:Not Found", httpclient.execute(new HttpGet("http://localhost:9000/items/3/detail"),
+                response -> response.getStatusLine().getStatusCode() + ":" + EntityUtils.toString(response.getEntity())));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void stubsAreRemovedAfterTest() throws Exception {
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            assertEquals("Not Found", execute(httpclient, new HttpGet("http://localhost:9000/items/1")));
+            assertEquals("UP", execute(httpclient, new HttpGet("http://localhost:9000/health")));
+        }
+    }
+
+    private static String execute(CloseableHttpClient httpclient, HttpUriRequest request) throws IOException {
+        return httpclient.execute(request, response -> EntityUtils.toString(response.getEntity()));
+    }
+}
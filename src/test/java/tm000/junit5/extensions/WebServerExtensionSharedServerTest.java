@@ -0,0 +1,118 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+public class WebServerExtensionSharedServerTest {
+    @RegisterExtension
+    static WebServerExtension first = WebServerExtension.builder()
+        .port(0)
+        .shared(true)
+        .build();
+
+    @RegisterExtension
+    static WebServerExtension second = WebServerExtension.builder()
+        .port(0)
+        .shared(true)
+        .build();
+
+    @RegisterExtension
+    static WebServerExtension twoWorkers = WebServerExtension.builder()
+        .port(0)
+        .workerThreads(2)
+        .shared(true)
+        .build();
+
+    @Test
+    @SimpleHttpResponse(value = "default", contentType = "text/plain")
+    void scopesAreIsolated() throws Exception {
+        assertEquals(first.getPort(), second.getPort());
+        assertNotEquals(first.getBaseUri(), second.getBaseUri());
+        first.when(RequestMatcher.get("/who")).respond("first");
+        second.when(RequestMatcher.get("/who")).respond("second");
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            assertEquals("first", get(httpclient, first.getBaseUri() + "/who"));
+            assertEquals("second", get(httpclient, second.getBaseUri() + "/who?x=1"));
+            assertEquals("second", get(httpclient, second.getBaseUri() + "/who"));
+            assertEquals("default", get(httpclient, first.getBaseUri() + "/other"));
+        }
+        assertEquals(1, first.getJournal().countByPath("/who"));
+        assertEquals(2, second.getJournal().countByPath("/who"));
+        assertEquals("/who?x=1", second.getHttpRequests().get(0).getUrl());
+        assertEquals("/other", first.getHttpRequests().get(1).getPath());
+    }
+
+    @Test
+    void differentConfigurationsAreNotShared() {
+        assertNotEquals(first.getPort(), twoWorkers.getPort());
+    }
+
+    @Test
+    void differentConfigurationOnTheSamePortIsRejected() {
+        SummaryGeneratingListener listener = new SummaryGeneratingListener();
+        LauncherFactory.create().execute(LauncherDiscoveryRequestBuilder.request()
+            .selectors(DiscoverySelectors.selectClass(SamePortServers.class))
+            .build(), listener);
+        TestExecutionSummary summary = listener.getSummary();
+        assertEquals(1, summary.getTotalFailureCount());
+        Throwable failure = summary.getFailures().get(0).getException();
+        assertEquals(ExtensionConfigurationException.class, failure.getClass());
+        assertTrue(failure.getMessage().contains("[workerThreads]"), failure.getMessage());
+        // afterAll of the extension which has not started does not hide the failure
+        assertEquals(0, failure.getSuppressed().length, Arrays.toString(failure.getSuppressed()));
+    }
+
+    /**
+     * run by the launcher of differentConfigurationOnTheSamePortIsRejected
+     */
+    static class SamePortServers {
+        static final int PORT = freePort();
+
+        @RegisterExtension
+        static WebServerExtension one = WebServerExtension.builder()
+            .port(PORT)
+            .shared(true)
+            .build();
+
+        @RegisterExtension
+        static WebServerExtension two = WebServerExtension.builder()
+            .port(PORT)
+            .workerThreads(2)
+            .shared(true)
+            .build();
+
+        @Test
+        void test() {
+        }
+
+        private static int freePort() {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                return socket.getLocalPort();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static String get(CloseableHttpClient httpclient, String uri) throws IOException {
+        return httpclient.execute(new HttpGet(uri), response -> EntityUtils.toString(response.getEntity()));
+    }
+}
@@ -0,0 +1,67 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+public class WebServerExtensionStartupTest {
+    @Test
+    void bindFailureIsThrown() throws Exception {
+        try (ServerSocket occupied = new ServerSocket(0)) {
+            WebServerExtension server = WebServerExtension.builder()
+                .port(occupied.getLocalPort())
+                .build();
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> server.beforeAll(null));
+            assertTrue(e.getCause() instanceof BindException, String.valueOf(e.getCause()));
+        }
+    }
+
+    @Test
+    void responseInProgressIsWrittenOnClose() throws Exception {
+        WebServerExtension server = WebServerExtension.builder()
+            .port(0)
+            .shutdownTimeout(10000)
+            .build();
+        server.beforeAll(null);
+        StringBuilder body = new StringBuilder();
+        while (body.length() < 8 * 1024 * 1024) {
+            body.append("0123456789abcdef");
+        }
+        server.when(RequestMatcher.get("/large")).respond(body.toString());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /large HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            // the response is not read until the server is closing, so it stays in progress
+            int first = in.read();
+            Future<?> closing = executor.submit(() -> {
+                server.afterAll(null);
+                return null;
+            });
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            received.write(first);
+            in.transferTo(received);
+            closing.get();
+            String response = received.toString(StandardCharsets.US_ASCII);
+            assertTrue(response.startsWith("HTTP/1.1 200"), response.substring(0, Math.min(100, response.length())));
+            assertEquals(body.toString(), response.substring(response.indexOf("\r\n\r\n") + 4));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class WebServerExtensionVirtualThreadsTest {
+    static final String RESPONSE = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: keep-alive\r\nContent-Type: text/plain\r\n\r\nOK";
+
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .virtualThreads(true)
+        .build();
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain")
+    void slowClients() throws Exception {
+        // all the connections are open before any of them sends a request
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) {
+                sockets.add(new Socket("localhost", 9000));
+            }
+            for (int i = 0; i < sockets.size(); i++) {
+                sockets.get(i).getOutputStream().write(("client" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            for (Socket socket : sockets) {
+                assertEquals(RESPONSE, read(socket.getInputStream()));
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+        assertEquals(100, server.getRequests().size());
+    }
+
+    private String read(InputStream in) throws IOException {
+        byte[] buffer = new byte[RESPONSE.length()];
+        int length = 0;
+        while (length < buffer.length) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+}
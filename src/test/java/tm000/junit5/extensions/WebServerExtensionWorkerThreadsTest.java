@@ -0,0 +1,80 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class WebServerExtensionWorkerThreadsTest {
+    static final String RESPONSE = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: keep-alive\r\nContent-Type: text/plain\r\n\r\nOK";
+
+    @RegisterExtension
+    static WebServerExtension server = WebServerExtension.builder()
+        .workerThreads(4)
+        .build();
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain")
+    void concurrentClients() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                String message = "client" + i;
+                responses.add(executor.submit(() -> request(message)));
+            }
+            for (Future<String> response : responses) {
+                assertEquals(RESPONSE, response.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(16, server.getRequests().size());
+    }
+
+    @Test
+    @SimpleHttpResponse(value = "OK", contentType = "text/plain")
+    void buffersAreReused() throws Exception {
+        WebServerExtension.AllocationMetrics before = server.getAllocationMetrics();
+        for (int i = 0; i < 20; i++) {
+            assertEquals(RESPONSE, request("client" + i));
+        }
+        // the connection is closed by the server after the client has closed it
+        Thread.sleep(100);
+        WebServerExtension.AllocationMetrics after = server.getAllocationMetrics();
+        assertTrue(after.getBuffersCreated() - before.getBuffersCreated() <= 8, after.toString());
+        assertTrue(after.getBuffersReused() - before.getBuffersReused() >= 12, after.toString());
+        assertTrue(after.getAllocatedBytes() == -1 || after.getAllocatedBytes() >= before.getAllocatedBytes(), after.toString());
+    }
+
+    private String request(String message) throws IOException {
+        try (Socket socket = new Socket("localhost", 9000)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(message.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[RESPONSE.length()];
+            int length = 0;
+            while (length < buffer.length) {
+                int read = in.read(buffer, length, buffer.length - length);
+                if (read == -1) {
+                    break;
+                }
+                length += read;
+            }
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
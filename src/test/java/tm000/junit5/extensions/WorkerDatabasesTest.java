@@ -0,0 +1,155 @@
+package tm000.junit5.extensions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+
+public class WorkerDatabasesTest {
+    // the URLs of the databases used by the classes run by the launcher
+    static final Map<String, String> URLS = new ConcurrentHashMap<>();
+    // both classes wait for each other, so they hold their leases at the same time
+    static final CyclicBarrier BARRIER = new CyclicBarrier(2);
+    static volatile WorkerDatabases databases;
+
+    @Test
+    void leasesAreReused() throws Exception {
+        Properties prop = new Properties();
+        prop.setProperty("jdbc.url", "jdbc:h2:mem:lease" + System.nanoTime() + "_${worker}");
+        prop.setProperty("jdbc.username", "sa");
+        prop.setProperty("jdbc.password", "");
+        WorkerDatabases databases = new WorkerDatabases(prop);
+        try {
+            WorkerDatabases.Lease first = databases.lease();
+            WorkerDatabases.Lease second = databases.lease();
+            assertEquals(0, first.worker);
+            assertEquals(1, second.worker);
+            assertTrue(first.pool.getUrl().endsWith("_0"), first.pool.getUrl());
+            assertTrue(second.pool.getUrl().endsWith("_1"), second.pool.getUrl());
+            second.close();
+            WorkerDatabases.Lease third = databases.lease();
+            assertEquals(1, third.worker);
+            assertSame(second.pool, third.pool);
+        } finally {
+            databases.close();
+        }
+    }
+
+    @Test
+    void sharedWithoutPlaceholder() throws Exception {
+        Properties prop = new Properties();
+        prop.setProperty("jdbc.url", "jdbc:h2:mem:shared" + System.nanoTime());
+        prop.setProperty("jdbc.username", "sa");
+        prop.setProperty("jdbc.password", "");
+        WorkerDatabases databases = new WorkerDatabases(prop);
+        try {
+            assertSame(databases.lease().pool, databases.lease().pool);
+        } finally {
+            databases.close();
+        }
+    }
+
+    @Test
+    void classesRunInParallelUseTheirOwnDatabases() {
+        URLS.clear();
+        BARRIER.reset();
+        AtomicInteger finishedClasses = new AtomicInteger();
+        AtomicInteger leasedAfterClasses = new AtomicInteger(-1);
+        // the store of a class has been closed when the class is reported as finished
+        TestExecutionListener releaseCheck = new TestExecutionListener() {
+            @Override
+            public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+                if (testIdentifier.getSource().filter(ClassSource.class::isInstance).isPresent()
+                        && finishedClasses.incrementAndGet() == 2) {
+                    try {
+                        WorkerDatabases.Lease lease = databases.lease();
+                        leasedAfterClasses.set(lease.worker);
+                        lease.close();
+                    } catch (SQLException | ClassNotFoundException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        };
+        SummaryGeneratingListener listener = new SummaryGeneratingListener();
+        LauncherFactory.create().execute(LauncherDiscoveryRequestBuilder.request()
+            .selectors(DiscoverySelectors.selectClass(FirstClass.class), DiscoverySelectors.selectClass(SecondClass.class))
+            .configurationParameter("jdbc.url", "jdbc:h2:mem:worker" + System.nanoTime() + "_${worker};DB_CLOSE_DELAY=-1")
+            .configurationParameter("junit.jupiter.execution.parallel.enabled", "true")
+            .configurationParameter("junit.jupiter.execution.parallel.mode.classes.default", "concurrent")
+            .configurationParameter("junit.jupiter.execution.parallel.config.strategy", "fixed")
+            .configurationParameter("junit.jupiter.execution.parallel.config.fixed.parallelism", "2")
+            .build(), listener, releaseCheck);
+        listener.getSummary().getFailures().forEach(failure -> {
+            throw new AssertionError(failure.getTestIdentifier().getDisplayName(), failure.getException());
+        });
+        assertEquals(2, listener.getSummary().getTestsSucceededCount());
+        assertEquals(Set.of("FirstClass", "SecondClass"), URLS.keySet());
+        assertNotEquals(URLS.get("FirstClass"), URLS.get("SecondClass"));
+        assertEquals(Set.of("_0", "_1"), Set.of(suffix(URLS.get("FirstClass")), suffix(URLS.get("SecondClass"))));
+        // the leases of the finished classes are given back, and no database is added
+        assertTrue(leasedAfterClasses.get() == 0 || leasedAfterClasses.get() == 1, String.valueOf(leasedAfterClasses.get()));
+    }
+
+    private static String suffix(String url) {
+        return url.replaceAll(".*(_\\d+).*", "$1");
+    }
+
+    private static void recordDatabase(Class<?> testClass, Connection con) throws Exception {
+        URLS.put(testClass.getSimpleName(), con.getMetaData().getURL());
+        BARRIER.await(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * keeps the databases of the run, which the listener leases after the classes
+     */
+    static class CaptureDatabases implements AfterAllCallback {
+        @Override
+        public void afterAll(ExtensionContext context) {
+            databases = context.getRoot().getStore(Namespace.create(DatabaseExtension.class)).get(WorkerDatabases.class, WorkerDatabases.class);
+        }
+    }
+
+    /**
+     * run by the launcher of classesRunInParallelUseTheirOwnDatabases
+     */
+    @ExtendWith({ DatabaseExtension.class, CaptureDatabases.class })
+    static class FirstClass {
+        @Test
+        void test(Connection con) throws Exception {
+            recordDatabase(getClass(), con);
+        }
+    }
+
+    @ExtendWith({ DatabaseExtension.class, CaptureDatabases.class })
+    static class SecondClass {
+        @Test
+        void test(Connection con) throws Exception {
+            recordDatabase(getClass(), con);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * seed data for DatabaseExtensionTest
+ */
+insert into EMPLOYEE
+    values(3, 'firstname3', 'lastname3', 'test3@example.com', 'address3; room 1', 'city3'); -- delimiter in a string
+insert into EMPLOYEE values(4, 'first''name4', 'lastname4', 'test4@example.com', '-- not a comment', 'city4');
+-- line comment;
+insert into TODO (todo, start, done)
+values ('buy /* milk */', '2021-09-10', false)